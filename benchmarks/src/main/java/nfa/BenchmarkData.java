@@ -0,0 +1,63 @@
+package nfa;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads the sample automata and inputs bundled into the benchmark jar.
+ * @author mjoer
+ */
+public class BenchmarkData {
+	
+	private BenchmarkData() {}
+	
+	/**
+	 * Read a bundled file the same way Reader.readEntireFile does, with every
+	 * line terminated by a newline.
+	 * @param name The name of the file in the repository root, such as "nfa1"
+	 * @return The contents of the file
+	 */
+	public static String read(String name) {
+		StringBuilder sb = new StringBuilder();
+		for(String line : BenchmarkData.lines(name)) {
+			sb.append(line + "\n");
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * Read the non-empty lines of a bundled file, like Reader.readIntoLines.
+	 * @param name The name of the file in the repository root
+	 * @return The non-empty lines of the file
+	 */
+	public static String[] readLines(String name) {
+		List<String> lines = new ArrayList<>();
+		for(String line : BenchmarkData.lines(name)) {
+			if(!line.isEmpty())
+				lines.add(line);
+		}
+		return lines.toArray(new String[lines.size()]);
+	}
+	
+	private static List<String> lines(String name) {
+		InputStream in = BenchmarkData.class.getResourceAsStream("/automata/" + name);
+		if(in == null)
+			throw new IllegalArgumentException("No bundled automaton named " + name);
+		List<String> lines = new ArrayList<>();
+		try(BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+			String line;
+			while((line = reader.readLine()) != null) {
+				lines.add(line);
+			}
+		} catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return lines;
+	}
+	
+}
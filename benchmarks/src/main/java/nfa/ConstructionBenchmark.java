@@ -0,0 +1,71 @@
+package nfa;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures each phase of turning an NFA file into a minimized DFA: parsing,
+ * subset construction (sequential and parallel) and minimization.
+ * @author mjoer
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConstructionBenchmark {
+	
+	@Param({ "nfa1", "nfa2", "nfa3", "nfa4", "nfa5", "nfa6", "nfaA", "nfaB", "nfaC", "nfaD", "nfaE", "nfaF" })
+	public String automaton;
+	
+	private String contents;
+	private NFA nfa;
+	private DFA dfa;
+	private ParallelDeterminizer determinizer;
+	
+	@Setup
+	public void setup() {
+		this.contents = BenchmarkData.read(this.automaton);
+		this.nfa = new NFA(this.contents);
+		this.dfa = new DFA(this.nfa);
+		this.determinizer = new ParallelDeterminizer();
+	}
+	
+	@TearDown
+	public void tearDown() {
+		this.determinizer.close();
+	}
+	
+	@Benchmark
+	public NFA parseNFA() {
+		return new NFA(this.contents);
+	}
+	
+	@Benchmark
+	public DFA determinize() {
+		return new DFA(this.nfa);
+	}
+	
+	@Benchmark
+	public DFA determinizeParallel() {
+		return this.determinizer.determinize(this.nfa);
+	}
+	
+	@Benchmark
+	public MinimizedDFA minimize() {
+		return this.dfa.minimize();
+	}
+	
+}
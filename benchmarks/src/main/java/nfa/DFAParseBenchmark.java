@@ -0,0 +1,56 @@
+package nfa;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures parsing DFA files and minimizing the parsed DFAs, sequentially
+ * and in parallel.
+ * @author mjoer
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DFAParseBenchmark {
+	
+	@Param({ "dfaA", "dfaB", "dfaC", "dfaD", "dfaE", "dfaF" })
+	public String automaton;
+	
+	private String contents;
+	private DFA dfa;
+	
+	@Setup
+	public void setup() {
+		this.contents = BenchmarkData.read(this.automaton);
+		this.dfa = new DFA(this.contents);
+	}
+	
+	@Benchmark
+	public DFA parseDFA() {
+		return new DFA(this.contents);
+	}
+	
+	@Benchmark
+	public MinimizedDFA minimize() {
+		return this.dfa.minimize();
+	}
+	
+	@Benchmark
+	public MinimizedDFA minimizeParallel() {
+		return this.dfa.minimize(Runtime.getRuntime().availableProcessors());
+	}
+	
+}
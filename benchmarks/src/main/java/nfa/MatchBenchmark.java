@@ -0,0 +1,92 @@
+package nfa;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures matching throughput over inputStrings.txt, in inputs per second,
+ * for each matching engine.
+ * @author mjoer
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatchBenchmark {
+	
+	private static final int INPUTS_PER_INVOCATION = 28;
+	
+	@Param({ "nfa1", "nfa2", "nfa3", "nfa4", "nfa5", "nfa6", "nfaA", "nfaB", "nfaC", "nfaD", "nfaE", "nfaF",
+			"dfaA", "dfaB", "dfaC", "dfaD", "dfaE", "dfaF" })
+	public String automaton;
+	
+	private String[] inputs;
+	private DFA dfa;
+	private MinimizedDFA minimized;
+	private CompiledDFA compiled;
+	private CompiledDFA profiled;
+	
+	@Setup
+	public void setup() {
+		String contents = BenchmarkData.read(this.automaton);
+		this.dfa = this.automaton.startsWith("nfa") ? new DFA(new NFA(contents)) : new DFA(contents);
+		this.minimized = this.dfa.minimize();
+		this.compiled = this.minimized.compile();
+		
+		// Repeat the inputs so every invocation tests the same number of strings
+		String[] lines = BenchmarkData.readLines("inputStrings.txt");
+		this.inputs = new String[INPUTS_PER_INVOCATION];
+		for(int i = 0; i < this.inputs.length; i++) {
+			this.inputs[i] = lines[i % lines.length];
+		}
+		this.profiled = StateLayout.byFrequency(this.compiled, Arrays.asList(this.inputs));
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(INPUTS_PER_INVOCATION)
+	public void dfaTestInput(Blackhole blackhole) {
+		for(String input : this.inputs) {
+			blackhole.consume(this.dfa.testInput(input));
+		}
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(INPUTS_PER_INVOCATION)
+	public void minimizedTestInput(Blackhole blackhole) {
+		for(String input : this.inputs) {
+			blackhole.consume(this.minimized.testInput(input));
+		}
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(INPUTS_PER_INVOCATION)
+	public void compiledMatches(Blackhole blackhole) {
+		for(String input : this.inputs) {
+			blackhole.consume(this.compiled.matches(input));
+		}
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(INPUTS_PER_INVOCATION)
+	public void profiledMatches(Blackhole blackhole) {
+		for(String input : this.inputs) {
+			blackhole.consume(this.profiled.matches(input));
+		}
+	}
+	
+}
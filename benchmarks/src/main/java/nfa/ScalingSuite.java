@@ -0,0 +1,175 @@
+package nfa;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Runs generated automata of increasing size through parsing, subset
+ * construction, minimization and matching, and prints the time and peak heap
+ * of every phase as CSV, one curve per family:
+ * <pre>
+ *   family,size,phase,millis,peakHeapMB,states
+ * </pre>
+ * NFAs are determinized, and DFAs minimized, both sequentially and in parallel.
+ * NFAs are also minimized directly with MinimizedDFA(NFA), whose peak heap
+ * can be compared with that of determinizing and then minimizing.
+ * Families are "the k-th symbol from the end is 'a'" NFAs (whose DFAs have
+ * 2^k states), random NFAs and random DFAs.  A family stops growing once a
+ * phase takes longer than the time budget.
+ * Usage: ScalingSuite [maxK] [maxRandomNFAStates] [maxRandomDFAStates] [budgetSeconds]
+ * @author mjoer
+ */
+public class ScalingSuite {
+
+	private static final int MATCH_INPUTS = 100000;
+	private static final int MATCH_INPUT_LENGTH = 64;
+
+	private final long budgetNanos;
+	private final ParallelDeterminizer determinizer;
+
+	private ScalingSuite(long budgetNanos, ParallelDeterminizer determinizer) {
+		this.budgetNanos = budgetNanos;
+		this.determinizer = determinizer;
+	}
+
+	public static void main(String[] args) {
+		int maxK = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+		int maxNFAStates = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+		int maxDFAStates = args.length > 2 ? Integer.parseInt(args[2]) : 1000000;
+		long budgetSeconds = args.length > 3 ? Long.parseLong(args[3]) : 60;
+		try(ParallelDeterminizer determinizer = new ParallelDeterminizer()) {
+			new ScalingSuite(budgetSeconds * 1000000000L, determinizer).run(maxK, maxNFAStates, maxDFAStates);
+		}
+	}
+
+	private void run(int maxK, int maxNFAStates, int maxDFAStates) {
+		System.out.println("family,size,phase,millis,peakHeapMB,states");
+
+		for(int k = 2; k <= maxK; k += 2) {
+			if(!this.runNFA("kth-from-end", k, AutomatonGenerator.kthFromEndNFA(k)))
+				break;
+		}
+		for(int states = 8; states <= maxNFAStates; states *= 2) {
+			if(!this.runNFA("random-nfa", states, AutomatonGenerator.randomNFA(states, 2, 0.1, 0.1, 0.1, states)))
+				break;
+		}
+		for(int states = 1000; states <= maxDFAStates; states *= 10) {
+			if(!this.runDFA("random-dfa", states, AutomatonGenerator.randomDFA(states, 4, 0.5, states)))
+				break;
+		}
+	}
+
+	/**
+	 * Run every phase for an NFA.
+	 * @return False if a phase went over the time budget
+	 */
+	private boolean runNFA(String family, int size, String contents) {
+		Measured<NFA> nfa = this.measure(() -> new NFA(contents));
+		this.report(family, size, "parse", nfa, nfa.result.getNumStates());
+		Measured<DFA> dfa = this.measure(() -> new DFA(nfa.result));
+		this.report(family, size, "determinize", dfa, dfa.result.getStates().length);
+		Measured<DFA> parallel = this.measure(() -> this.determinizer.determinize(nfa.result));
+		this.report(family, size, "determinize-parallel", parallel, parallel.result.getStates().length);
+		Measured<MinimizedDFA> fused = this.measure(() -> new MinimizedDFA(nfa.result));
+		this.report(family, size, "minimize-fused", fused, fused.result.getStates().length);
+		return this.withinBudget(nfa, dfa, parallel, fused) && this.runMinimizeAndMatch(family, size, dfa.result);
+	}
+
+	private boolean runDFA(String family, int size, String contents) {
+		Measured<DFA> dfa = this.measure(() -> new DFA(contents));
+		this.report(family, size, "parse", dfa, dfa.result.getStates().length);
+		return this.withinBudget(dfa) && this.runMinimizeAndMatch(family, size, dfa.result);
+	}
+
+	private boolean runMinimizeAndMatch(String family, int size, DFA dfa) {
+		Measured<MinimizedDFA> minimized = this.measure(() -> dfa.minimize());
+		this.report(family, size, "minimize", minimized, minimized.result.getStates().length);
+		Measured<MinimizedDFA> parallel = this.measure(() -> dfa.minimize(Runtime.getRuntime().availableProcessors()));
+		this.report(family, size, "minimize-parallel", parallel, parallel.result.getStates().length);
+
+		CompiledDFA compiled = minimized.result.compile();
+		String[] inputs = ScalingSuite.randomInputs(compiled.getSigma(), size);
+		Measured<Integer> matched = this.measure(() -> ScalingSuite.countAccepted(compiled, inputs));
+		this.report(family, size, "match", matched, compiled.getNumStates());
+		// Profile on the first tenth of the inputs, then match all of them
+		CompiledDFA profiled = StateLayout.byFrequency(compiled,
+				Arrays.asList(inputs).subList(0, inputs.length / 10));
+		Measured<Integer> matchedProfiled = this.measure(() -> ScalingSuite.countAccepted(profiled, inputs));
+		this.report(family, size, "match-profiled", matchedProfiled, profiled.getNumStates());
+		return this.withinBudget(minimized, parallel, matched, matchedProfiled);
+	}
+
+	private static int countAccepted(CompiledDFA dfa, String[] inputs) {
+		int accepted = 0;
+		for(String input : inputs) {
+			if(dfa.matches(input))
+				accepted++;
+		}
+		return accepted;
+	}
+
+	private static String[] randomInputs(char[] sigma, long seed) {
+		Random random = new Random(seed);
+		String[] inputs = new String[MATCH_INPUTS];
+		char[] input = new char[MATCH_INPUT_LENGTH];
+		for(int i = 0; i < inputs.length; i++) {
+			for(int c = 0; c < input.length; c++) {
+				input[c] = sigma[random.nextInt(sigma.length)];
+			}
+			inputs[i] = new String(input);
+		}
+		return inputs;
+	}
+
+	private boolean withinBudget(Measured<?> ... phases) {
+		for(Measured<?> phase : phases) {
+			if(phase.nanos > this.budgetNanos)
+				return false;
+		}
+		return true;
+	}
+
+	private void report(String family, int size, String phase, Measured<?> measured, int states) {
+		System.out.printf("%s,%d,%s,%.3f,%.1f,%d%n", family, size, phase,
+				measured.nanos / 1e6, measured.peakHeapBytes / (1024.0 * 1024.0), states);
+	}
+
+	/**
+	 * Run a phase after a full GC, recording its time and the peak heap use
+	 * of all heap pools while it ran.
+	 */
+	private <T> Measured<T> measure(Supplier<T> phase) {
+		System.gc();
+		for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if(pool.getType() == MemoryType.HEAP)
+				pool.resetPeakUsage();
+		}
+
+		long start = System.nanoTime();
+		T result = phase.get();
+		long nanos = System.nanoTime() - start;
+
+		long peak = 0;
+		for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if(pool.getType() == MemoryType.HEAP)
+				peak += pool.getPeakUsage().getUsed();
+		}
+		return new Measured<>(result, nanos, peak);
+	}
+
+	private static class Measured<T> {
+		private final T result;
+		private final long nanos;
+		private final long peakHeapBytes;
+
+		private Measured(T result, long nanos, long peakHeapBytes) {
+			this.result = result;
+			this.nanos = nanos;
+			this.peakHeapBytes = peakHeapBytes;
+		}
+	}
+
+}
@@ -0,0 +1,24 @@
+package nfa;
+
+/**
+ * Thrown when the text of an NFA or DFA file is malformed.  The message names
+ * the line and column of the problem, both counted from 1.
+ * @author mjoer
+ */
+public class AutomatonFormatException extends IllegalArgumentException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final int line;
+	private final int column;
+
+	public AutomatonFormatException(String source, int line, int column, String message) {
+		super(source + ":" + line + ":" + column + ": " + message);
+		this.line = line;
+		this.column = column;
+	}
+
+	public int getLine() { return this.line; }
+	public int getColumn() { return this.column; }
+
+}
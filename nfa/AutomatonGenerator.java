@@ -0,0 +1,317 @@
+package nfa;
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.util.Random;
+
+/**
+ * Generates NFAs and DFAs in the same text formats that NFA(String) and
+ * DFA(String) read, for testing how construction, minimization and matching
+ * scale with the size of an automaton.
+ * Symbols are taken in order from SYMBOLS, so an alphabet of size 3 is
+ * "a b c".
+ * @author mjoer
+ */
+public class AutomatonGenerator {
+
+	public static final String SYMBOLS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+
+	private AutomatonGenerator() {}
+
+	/**
+	 * Generate a random NFA.  Every state has at least one transition on every
+	 * symbol.
+	 * @param numStates The number of states
+	 * @param alphabetSize The number of symbols, at most SYMBOLS.length()
+	 * @param lambdaDensity The expected number of lambda transitions from each state
+	 * @param nondeterminism The chance of adding each further transition on a
+	 * 		symbol, so the expected number of targets per symbol is
+	 * 		1 / (1 - nondeterminism)
+	 * @param acceptingFraction The chance of each state being accepting.  At least
+	 * 		one state is always accepting.
+	 * @param seed The seed for the random number generator
+	 * @return The NFA in the format read by NFA(String)
+	 */
+	public static String randomNFA(int numStates, int alphabetSize, double lambdaDensity,
+			double nondeterminism, double acceptingFraction, long seed) {
+		AutomatonGenerator.checkSize(numStates, alphabetSize);
+		if(nondeterminism < 0 || nondeterminism >= 1)
+			throw new IllegalArgumentException("nondeterminism must be in [0, 1), got " + nondeterminism);
+		Random random = new Random(seed);
+
+		int[][][] transitions = new int[numStates][alphabetSize + 1][];
+		for(int state = 0; state < numStates; state++) {
+			for(int symbol = 0; symbol < alphabetSize; symbol++) {
+				int count = 1;
+				while(count < numStates && random.nextDouble() < nondeterminism) {
+					count++;
+				}
+				transitions[state][symbol] = AutomatonGenerator.randomTargets(random, numStates, count);
+			}
+			int lambdaCount = (int) lambdaDensity;
+			if(random.nextDouble() < lambdaDensity - lambdaCount) {
+				lambdaCount++;
+			}
+			transitions[state][alphabetSize] = AutomatonGenerator.randomTargets(random, numStates,
+					Math.min(lambdaCount, numStates));
+		}
+
+		return AutomatonGenerator.formatNFA(alphabetSize, transitions, 0,
+				AutomatonGenerator.randomAccepting(random, numStates, acceptingFraction));
+	}
+
+	/**
+	 * Generate the NFA for "the k-th symbol from the end is 'a'" over {a, b}.
+	 * It has k + 1 states, but every DFA for the language has at least 2^k states.
+	 * @param k The position from the end, at least 1
+	 * @return The NFA in the format read by NFA(String)
+	 */
+	public static String kthFromEndNFA(int k) {
+		if(k < 1)
+			throw new IllegalArgumentException("k must be at least 1, got " + k);
+		int[][][] transitions = new int[k + 1][3][];
+		// State 0 loops on everything and guesses where the k-th last symbol is
+		transitions[0][0] = new int[] { 0, 1 };
+		transitions[0][1] = new int[] { 0 };
+		transitions[0][2] = new int[0];
+		for(int state = 1; state <= k; state++) {
+			int[] next = state < k ? new int[] { state + 1 } : new int[0];
+			transitions[state][0] = next;
+			transitions[state][1] = next;
+			transitions[state][2] = new int[0];
+		}
+		boolean[] accepting = new boolean[k + 1];
+		accepting[k] = true;
+		return AutomatonGenerator.formatNFA(2, transitions, 0, accepting);
+	}
+
+	/**
+	 * Generate a random, complete DFA.
+	 * @param numStates The number of states
+	 * @param alphabetSize The number of symbols, at most SYMBOLS.length()
+	 * @param acceptingFraction The chance of each state being accepting.  At least
+	 * 		one state is always accepting.
+	 * @param seed The seed for the random number generator
+	 * @return The DFA in the format read by DFA(String)
+	 */
+	public static String randomDFA(int numStates, int alphabetSize, double acceptingFraction, long seed) {
+		AutomatonGenerator.checkSize(numStates, alphabetSize);
+		Random random = new Random(seed);
+
+		int[][] transitions = new int[numStates][alphabetSize];
+		for(int state = 0; state < numStates; state++) {
+			for(int symbol = 0; symbol < alphabetSize; symbol++) {
+				transitions[state][symbol] = random.nextInt(numStates);
+			}
+		}
+		return AutomatonGenerator.formatDFA(alphabetSize, transitions, 0,
+				AutomatonGenerator.randomAccepting(random, numStates, acceptingFraction));
+	}
+
+	/**
+	 * Generate the minimal DFA for "the k-th symbol from the end is 'a'" over
+	 * {a, b}.  State s remembers the last k symbols as bits, with 1 for 'a', so
+	 * the DFA has exactly 2^k states.
+	 * @param k The position from the end, between 1 and 24
+	 * @return The DFA in the format read by DFA(String)
+	 */
+	public static String kthFromEndDFA(int k) {
+		if(k < 1 || k > 24)
+			throw new IllegalArgumentException("k must be between 1 and 24, got " + k);
+		int numStates = 1 << k;
+		int mask = numStates - 1;
+		int[][] transitions = new int[numStates][2];
+		boolean[] accepting = new boolean[numStates];
+		for(int state = 0; state < numStates; state++) {
+			transitions[state][0] = ((state << 1) | 1) & mask;
+			transitions[state][1] = (state << 1) & mask;
+			accepting[state] = (state & (1 << (k - 1))) != 0;
+		}
+		return AutomatonGenerator.formatDFA(2, transitions, 0, accepting);
+	}
+
+	/**
+	 * Format an NFA.  The last column of transitions holds the lambda transitions.
+	 */
+	static String formatNFA(int alphabetSize, int[][][] transitions, int initialState, boolean[] accepting) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(transitions.length).append('\n');
+		for(int symbol = 0; symbol < alphabetSize; symbol++) {
+			sb.append(SYMBOLS.charAt(symbol)).append(' ');
+		}
+		sb.append('\n');
+
+		for(int state = 0; state < transitions.length; state++) {
+			sb.append(state).append(": ");
+			for(int[] targets : transitions[state]) {
+				sb.append('{');
+				for(int t = 0; t < targets.length; t++) {
+					if(t > 0)
+						sb.append(',');
+					sb.append(targets[t]);
+				}
+				sb.append("} ");
+			}
+			sb.append('\n');
+		}
+
+		sb.append(initialState).append('\n');
+		sb.append('{');
+		boolean first = true;
+		for(int state = 0; state < accepting.length; state++) {
+			if(accepting[state]) {
+				if(!first)
+					sb.append(',');
+				sb.append(state);
+				first = false;
+			}
+		}
+		sb.append("}\n");
+		return sb.toString();
+	}
+
+	/**
+	 * Format a DFA.
+	 */
+	static String formatDFA(int alphabetSize, int[][] transitions, int initialState, boolean[] accepting) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(transitions.length).append('\n');
+		sb.append("Sigma:");
+		for(int symbol = 0; symbol < alphabetSize; symbol++) {
+			sb.append("     ").append(SYMBOLS.charAt(symbol));
+		}
+		sb.append('\n');
+		String rule = AutomatonGenerator.repeat('-', 6 + 6 * alphabetSize);
+		sb.append(rule).append('\n');
+
+		for(int state = 0; state < transitions.length; state++) {
+			sb.append("    ").append(state).append(':');
+			for(int target : transitions[state]) {
+				sb.append("     ").append(target);
+			}
+			sb.append('\n');
+		}
+
+		sb.append(rule).append('\n');
+		sb.append(initialState).append(": Initial State\n");
+		boolean first = true;
+		for(int state = 0; state < accepting.length; state++) {
+			if(accepting[state]) {
+				if(!first)
+					sb.append(',');
+				sb.append(state);
+				first = false;
+			}
+		}
+		sb.append(": Accepting State(s)\n");
+		return sb.toString();
+	}
+
+	private static void checkSize(int numStates, int alphabetSize) {
+		if(numStates < 1)
+			throw new IllegalArgumentException("numStates must be at least 1, got " + numStates);
+		if(alphabetSize < 1 || alphabetSize > SYMBOLS.length())
+			throw new IllegalArgumentException("alphabetSize must be between 1 and " + SYMBOLS.length() + ", got " + alphabetSize);
+	}
+
+	/**
+	 * Pick count distinct states at random.
+	 */
+	private static int[] randomTargets(Random random, int numStates, int count) {
+		int[] targets = new int[count];
+		for(int i = 0; i < count; i++) {
+			boolean duplicate;
+			do {
+				targets[i] = random.nextInt(numStates);
+				duplicate = false;
+				for(int j = 0; j < i; j++) {
+					duplicate |= targets[j] == targets[i];
+				}
+			} while(duplicate);
+		}
+		return targets;
+	}
+
+	private static boolean[] randomAccepting(Random random, int numStates, double acceptingFraction) {
+		boolean[] accepting = new boolean[numStates];
+		boolean any = false;
+		for(int state = 0; state < numStates; state++) {
+			accepting[state] = random.nextDouble() < acceptingFraction;
+			any |= accepting[state];
+		}
+		if(!any) {
+			accepting[random.nextInt(numStates)] = true;
+		}
+		return accepting;
+	}
+
+	private static String repeat(char c, int count) {
+		StringBuilder sb = new StringBuilder(count);
+		for(int i = 0; i < count; i++) {
+			sb.append(c);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Write a generated automaton to a file.  Usage:
+	 * <pre>
+	 *   AutomatonGenerator nfa &lt;states&gt; &lt;alphabet&gt; &lt;lambda&gt; &lt;nondeterminism&gt; &lt;accepting&gt; &lt;seed&gt; &lt;out&gt;
+	 *   AutomatonGenerator dfa &lt;states&gt; &lt;alphabet&gt; &lt;accepting&gt; &lt;seed&gt; &lt;out&gt;
+	 *   AutomatonGenerator kth-nfa &lt;k&gt; &lt;out&gt;
+	 *   AutomatonGenerator kth-dfa &lt;k&gt; &lt;out&gt;
+	 * </pre>
+	 */
+	public static void main(String[] args) throws FileNotFoundException {
+		if(args.length < 1) {
+			System.out.println("AutomatonGenerator requires a family, its parameters and an output file");
+			return;
+		}
+
+		String usage;
+		switch(args[0]) {
+		case "nfa":
+			usage = "nfa <states> <alphabet> <lambda> <nondeterminism> <accepting> <seed> <out>";
+			break;
+		case "dfa":
+			usage = "dfa <states> <alphabet> <accepting> <seed> <out>";
+			break;
+		case "kth-nfa":
+		case "kth-dfa":
+			usage = args[0] + " <k> <out>";
+			break;
+		default:
+			System.out.println("Unknown family " + args[0] + ", expected nfa, dfa, kth-nfa or kth-dfa");
+			return;
+		}
+		// Every word of the usage, the family included, is one argument
+		int expected = usage.split(" ").length;
+		if(args.length != expected) {
+			System.out.println("Usage: AutomatonGenerator " + usage);
+			return;
+		}
+
+		String automaton;
+		switch(args[0]) {
+		case "nfa":
+			automaton = AutomatonGenerator.randomNFA(Integer.parseInt(args[1]), Integer.parseInt(args[2]),
+					Double.parseDouble(args[3]), Double.parseDouble(args[4]), Double.parseDouble(args[5]),
+					Long.parseLong(args[6]));
+			break;
+		case "dfa":
+			automaton = AutomatonGenerator.randomDFA(Integer.parseInt(args[1]), Integer.parseInt(args[2]),
+					Double.parseDouble(args[3]), Long.parseLong(args[4]));
+			break;
+		case "kth-nfa":
+			automaton = AutomatonGenerator.kthFromEndNFA(Integer.parseInt(args[1]));
+			break;
+		default:
+			automaton = AutomatonGenerator.kthFromEndDFA(Integer.parseInt(args[1]));
+			break;
+		}
+
+		try(PrintWriter out = new PrintWriter(args[expected - 1])) {
+			out.print(automaton);
+		}
+	}
+
+}
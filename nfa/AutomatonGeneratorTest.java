@@ -0,0 +1,66 @@
+package nfa;
+
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class AutomatonGeneratorTest {
+	
+	@Test
+	public void kthFromEndNFABlowsUp() {
+		for(int k = 1; k <= 6; k++) {
+			DFA dfa = new DFA(new NFA(AutomatonGenerator.kthFromEndNFA(k)));
+			
+			assertEquals(1 << k, dfa.getStates().length);
+			assertEquals(1 << k, dfa.minimize().getStates().length);
+		}
+	}
+	
+	@Test
+	public void kthFromEndDFAMatchesNFA() {
+		int k = 4;
+		DFA fromNFA = new DFA(new NFA(AutomatonGenerator.kthFromEndNFA(k)));
+		DFA generated = new DFA(AutomatonGenerator.kthFromEndDFA(k));
+		
+		assertEquals(1 << k, generated.minimize().getStates().length);
+		for(String input : AutomatonGeneratorTest.randomInputs("ab", 200, 10, 4)) {
+			assertEquals(input, fromNFA.testInput(input), generated.testInput(input));
+		}
+	}
+	
+	@Test
+	public void randomNFAIsReadable() {
+		NFA nfa = new NFA(AutomatonGenerator.randomNFA(30, 3, 0.5, 0.3, 0.2, 7));
+		DFA dfa = new DFA(nfa);
+		BitParallelNFA simulated = new BitParallelNFA(nfa);
+		
+		assertArrayEquals(new char[] { 'a', 'b', 'c', '^' }, nfa.getSigma());
+		for(String input : AutomatonGeneratorTest.randomInputs("abc", 200, 12, 7)) {
+			assertEquals(input, simulated.matches(input), dfa.testInput(input));
+		}
+	}
+	
+	@Test
+	public void randomDFAIsReadable() {
+		DFA dfa = new DFA(AutomatonGenerator.randomDFA(50, 4, 0.3, 11));
+		
+		assertEquals(50, dfa.getStates().length);
+		assertArrayEquals(new char[] { 'a', 'b', 'c', 'd' }, dfa.getSigma());
+	}
+	
+	private static String[] randomInputs(String alphabet, int count, int maxLength, long seed) {
+		Random random = new Random(seed);
+		String[] inputs = new String[count];
+		for(int i = 0; i < count; i++) {
+			StringBuilder sb = new StringBuilder();
+			int length = random.nextInt(maxLength + 1);
+			for(int c = 0; c < length; c++) {
+				sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+			}
+			inputs[i] = sb.toString();
+		}
+		return inputs;
+	}
+	
+}
@@ -0,0 +1,561 @@
+package nfa;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Parses the NFA and DFA text formats in a single pass over a character
+ * stream.  Rows are never split into Strings: numbers are read digit by digit
+ * straight into the state arrays, so a file is never held in memory, and the
+ * position of every problem is reported as an AutomatonFormatException.
+ * <p>
+ * An NFA file holds the number of states, the symbols of sigma, one row of
+ * transition sets per state with lambda last, the initial state and the set of
+ * accepting states:
+ * <pre>
+ *   3
+ *   a b
+ *   0: {0,1} {0} {}
+ *   1: {2} {2} {}
+ *   2: {} {} {}
+ *   0
+ *   {2}
+ * </pre>
+ * A DFA file holds the number of states, a sigma line with a header, a ruled
+ * line, one row of target states per state, another ruled line, the initial
+ * state and the accepting states:
+ * <pre>
+ *   2
+ *   Sigma:     a     b
+ *   ------------------
+ *       0:     1     0
+ *       1:     1     0
+ *   ------------------
+ *   0: Initial State
+ *   1: Accepting State(s)
+ * </pre>
+ * Blank lines between rows and '\r' before a newline are ignored.  Anything
+ * after the accepting states is ignored.
+ * @author mjoer
+ */
+public class AutomatonParser {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final int EOF = -1;
+
+	private final java.io.Reader in;
+	private final String source;
+	private final char[] buffer = new char[BUFFER_SIZE];
+	private int position;
+	private int limit;
+	private int line = 1;
+	private int column = 1;
+
+	/**
+	 * @param in The text to parse.  It is read in blocks, so it doesn't need
+	 * 		to be buffered, and it is not closed.
+	 */
+	public AutomatonParser(java.io.Reader in) {
+		this(in, "input");
+	}
+
+	/**
+	 * @param in The text to parse, in UTF-8.  It is not closed.
+	 */
+	public AutomatonParser(InputStream in) {
+		this(new InputStreamReader(in, StandardCharsets.UTF_8), "input");
+	}
+
+	/**
+	 * @param channel The text to parse, in UTF-8, from the current position of
+	 * 		the channel.  It is not closed.
+	 */
+	public AutomatonParser(FileChannel channel) {
+		this(Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), BUFFER_SIZE), "input");
+	}
+
+	/**
+	 * @param source The name of the input, used in error messages
+	 */
+	private AutomatonParser(java.io.Reader in, String source) {
+		this.in = in;
+		this.source = source;
+	}
+
+	/**
+	 * Read an NFA file.
+	 * @param path The file to read
+	 * @return The NFA
+	 * @throws IOException If the file can't be read
+	 * @throws AutomatonFormatException If the file is malformed
+	 */
+	public static NFA readNFA(Path path) throws IOException {
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return AutomatonParser.forChannel(channel, path).parseNFA();
+		}
+	}
+
+	/**
+	 * Read a DFA file.
+	 * @param path The file to read
+	 * @return The DFA
+	 * @throws IOException If the file can't be read
+	 * @throws AutomatonFormatException If the file is malformed
+	 */
+	public static DFA readDFA(Path path) throws IOException {
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return AutomatonParser.forChannel(channel, path).parseDFA();
+		}
+	}
+
+	/**
+	 * Read a DFA file straight into a CompiledDFA, without creating a DFANode
+	 * for every state.
+	 * @param path The file to read
+	 * @return The compiled DFA
+	 * @throws IOException If the file can't be read
+	 * @throws AutomatonFormatException If the file is malformed
+	 */
+	public static CompiledDFA readCompiledDFA(Path path) throws IOException {
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return AutomatonParser.forChannel(channel, path).parseCompiledDFA();
+		}
+	}
+
+	private static AutomatonParser forChannel(FileChannel channel, Path path) {
+		return new AutomatonParser(Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), BUFFER_SIZE), path.toString());
+	}
+
+	/**
+	 * Parse the text of an NFA file held in a String, for NFA(String).
+	 */
+	static NFATables nfaTables(String contents) {
+		try {
+			return new AutomatonParser(new StringReader(contents)).parseNFATables();
+		} catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Parse the text of a DFA file held in a String, for DFA(String).
+	 */
+	static CompiledDFA dfaTables(String contents) {
+		try {
+			return new AutomatonParser(new StringReader(contents)).parseCompiledDFA();
+		} catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * @return The NFA
+	 * @throws IOException If the input can't be read
+	 * @throws AutomatonFormatException If the input is malformed
+	 */
+	public NFA parseNFA() throws IOException {
+		return new NFA(this.parseNFATables());
+	}
+
+	/**
+	 * @return The DFA
+	 * @throws IOException If the input can't be read
+	 * @throws AutomatonFormatException If the input is malformed
+	 */
+	public DFA parseDFA() throws IOException {
+		return new DFA(this.parseCompiledDFA());
+	}
+
+	/**
+	 * Parse the NFA format into flat tables.  The targets of state s on
+	 * symbol i are targets[offsets[s * sigma.length + i]] up to, but not
+	 * including, targets[offsets[s * sigma.length + i + 1]].
+	 */
+	private NFATables parseNFATables() throws IOException {
+		long start = System.nanoTime();
+		int numStates = this.readCount();
+
+		this.skipBlankLines();
+		char[] sigma = new char[16];
+		int sigmaLength = 0;
+		for(int c = this.peek(); c != '\n' && c != EOF; c = this.peek()) {
+			if(!Character.isWhitespace(c)) {
+				if(c == NFA.LAMBDA)
+					throw this.error("'" + NFA.LAMBDA + "' is reserved for lambda and can't be in sigma");
+				if(AutomatonParser.indexOf(sigma, sigmaLength, (char) c) >= 0)
+					throw this.error("'" + (char) c + "' is in sigma twice");
+				if(sigmaLength == sigma.length - 1) {
+					sigma = Arrays.copyOf(sigma, sigma.length * 2);
+				}
+				sigma[sigmaLength++] = (char) c;
+			}
+			this.next();
+		}
+		this.next();
+		sigma[sigmaLength++] = NFA.LAMBDA;
+		sigma = Arrays.copyOf(sigma, sigmaLength);
+
+		long tableLength = (long) numStates * sigma.length + 1;
+		if(tableLength > Integer.MAX_VALUE)
+			throw this.error(numStates + " states are too many for " + sigma.length + " symbols");
+		int[] offsets = new int[(int) tableLength];
+		IntList targets = new IntList();
+
+		for(int state = 0; state < numStates; state++) {
+			this.skipBlankLines();
+			if(this.peek() != '{') {
+				// Skip the state label
+				int c;
+				while((c = this.peek()) != ':') {
+					if(c == '\n' || c == EOF)
+						throw this.error("expected a row of transitions for state " + state + ", found " + this.describe(c));
+					this.next();
+				}
+				this.next();
+				this.skipBlanks();
+			}
+
+			int symbol = 0;
+			int row = state * sigma.length;
+			while(this.peek() == '{') {
+				if(symbol == sigma.length)
+					throw this.error("state " + state + " has more than " + sigma.length + " transition sets");
+				this.next();
+				this.skipBlanks();
+				if(this.peek() != '}') {
+					targets.add(this.readState(numStates));
+					this.skipBlanks();
+					while(this.peek() == ',') {
+						this.next();
+						targets.add(this.readState(numStates));
+						this.skipBlanks();
+					}
+				}
+				this.expect('}');
+				offsets[row + symbol + 1] = targets.size();
+				symbol++;
+				this.skipBlanks();
+			}
+			// Missing sets at the end of a row are empty
+			for(; symbol < sigma.length; symbol++) {
+				offsets[row + symbol + 1] = targets.size();
+			}
+			this.endLine();
+		}
+
+		this.skipBlankLines();
+		int initialState = this.readState(numStates);
+		this.endLine();
+
+		this.skipBlankLines();
+		IntList accepting = new IntList();
+		boolean braced = this.peek() == '{';
+		if(braced) {
+			this.next();
+			this.skipBlanks();
+		}
+		if(this.peek() != '}' || !braced) {
+			accepting.add(this.readState(numStates));
+			this.skipBlanks();
+			while(this.peek() == ',') {
+				this.next();
+				accepting.add(this.readState(numStates));
+				this.skipBlanks();
+			}
+		}
+		if(braced) {
+			this.expect('}');
+		}
+		this.endLine();
+
+		Metrics.phaseCompleted(Metrics.PARSE, start);
+		return new NFATables(sigma, numStates, offsets, targets.toArray(), initialState, accepting.toArray());
+	}
+
+	/**
+	 * @return The DFA, without a DFANode for every state
+	 * @throws IOException If the input can't be read
+	 * @throws AutomatonFormatException If the input is malformed
+	 */
+	public CompiledDFA parseCompiledDFA() throws IOException {
+		long start = System.nanoTime();
+		int numStates = this.readCount();
+
+		// The first token of the sigma line is a header, such as "Sigma:"
+		this.skipBlankLines();
+		this.skipToken();
+		char[] sigma = new char[16];
+		int sigmaLength = 0;
+		this.skipBlanks();
+		for(int c = this.peek(); c != '\n' && c != EOF; c = this.peek()) {
+			if(AutomatonParser.indexOf(sigma, sigmaLength, (char) c) >= 0)
+				throw this.error("'" + (char) c + "' is in sigma twice");
+			this.next();
+			int after = this.peek();
+			if(after != '\n' && after != EOF && !Character.isWhitespace(after))
+				throw this.error("symbols must be single characters");
+			if(sigmaLength == sigma.length) {
+				sigma = Arrays.copyOf(sigma, sigma.length * 2);
+			}
+			sigma[sigmaLength++] = (char) c;
+			this.skipBlanks();
+		}
+		this.next();
+		sigma = Arrays.copyOf(sigma, sigmaLength);
+
+		this.skipBlankLines();
+		this.skipLine();
+
+		long tableLength = (long) numStates * sigma.length;
+		if(tableLength > Integer.MAX_VALUE)
+			throw this.error(numStates + " states are too many for " + sigma.length + " symbols");
+		int[] transitions = new int[(int) tableLength];
+		for(int state = 0; state < numStates; state++) {
+			this.skipBlankLines();
+			// Skip the state label
+			this.skipToken();
+			this.skipBlanks();
+			int row = state * sigma.length;
+			int symbol = 0;
+			for(int c = this.peek(); c != '\n' && c != EOF; c = this.peek()) {
+				if(symbol == sigma.length)
+					throw this.error("state " + state + " has more than " + sigma.length + " transitions");
+				transitions[row + symbol++] = this.readState(numStates);
+				this.skipBlanks();
+			}
+			// Missing transitions at the end of a row reject
+			for(; symbol < sigma.length; symbol++) {
+				transitions[row + symbol] = CompiledDFA.REJECT;
+			}
+			this.next();
+		}
+
+		this.skipBlankLines();
+		this.skipLine();
+
+		// The initial and accepting state lines end in a description, such
+		// as ": Initial State", which is not read
+		this.skipBlankLines();
+		int initialState = this.readState(numStates);
+		this.skipLine();
+
+		this.skipBlankLines();
+		long[] accepting = new long[(numStates + 63) >>> 6];
+		this.skipBlanks();
+		if(this.peek() != ':') {
+			int state = this.readState(numStates);
+			accepting[state >>> 6] |= 1L << state;
+			this.skipBlanks();
+			while(this.peek() == ',') {
+				this.next();
+				state = this.readState(numStates);
+				accepting[state >>> 6] |= 1L << state;
+				this.skipBlanks();
+			}
+			if(this.peek() != ':' && this.peek() != '\n' && this.peek() != EOF)
+				throw this.error("expected ',' or ':', found " + this.describe(this.peek()));
+		}
+		this.skipLine();
+
+		Metrics.phaseCompleted(Metrics.PARSE, start);
+		return new CompiledDFA(sigma, numStates, initialState, transitions, accepting);
+	}
+
+	/**
+	 * Read the number of states on a line of its own.
+	 */
+	private int readCount() throws IOException {
+		this.skipBlankLines();
+		int count = this.readNumber("the number of states");
+		this.endLine();
+		return count;
+	}
+
+	/**
+	 * Read a state number, which must be less than numStates.
+	 */
+	private int readState(int numStates) throws IOException {
+		this.skipBlanks();
+		int line = this.line;
+		int column = this.column;
+		int state = this.readNumber("a state number");
+		if(state >= numStates)
+			throw new AutomatonFormatException(this.source, line, column,
+					"state " + state + " is out of range, there are only " + numStates + " states");
+		return state;
+	}
+
+	private int readNumber(String expected) throws IOException {
+		this.skipBlanks();
+		int c = this.peek();
+		if(c < '0' || c > '9')
+			throw this.error("expected " + expected + ", found " + this.describe(c));
+		int line = this.line;
+		int column = this.column;
+		long value = 0;
+		do {
+			value = value * 10 + (c - '0');
+			if(value > Integer.MAX_VALUE)
+				throw new AutomatonFormatException(this.source, line, column, "number is too large");
+			this.next();
+			c = this.peek();
+		} while(c >= '0' && c <= '9');
+		return (int) value;
+	}
+
+	private void expect(char expected) throws IOException {
+		this.skipBlanks();
+		int c = this.peek();
+		if(c != expected)
+			throw this.error("expected '" + expected + "', found " + this.describe(c));
+		this.next();
+	}
+
+	/**
+	 * Require the end of the current line and move past it.
+	 */
+	private void endLine() throws IOException {
+		this.skipBlanks();
+		int c = this.peek();
+		if(c != '\n' && c != EOF)
+			throw this.error("expected the end of the line, found " + this.describe(c));
+		this.next();
+	}
+
+	/**
+	 * Skip whitespace other than newlines.
+	 */
+	private void skipBlanks() throws IOException {
+		int c;
+		while((c = this.peek()) != '\n' && c != EOF && Character.isWhitespace(c)) {
+			this.next();
+		}
+	}
+
+	private void skipBlankLines() throws IOException {
+		this.skipBlanks();
+		while(this.peek() == '\n') {
+			this.next();
+			this.skipBlanks();
+		}
+	}
+
+	/**
+	 * Skip to the next whitespace, without leaving the line.
+	 */
+	private void skipToken() throws IOException {
+		int c;
+		while((c = this.peek()) != EOF && !Character.isWhitespace(c)) {
+			this.next();
+		}
+	}
+
+	/**
+	 * Skip the rest of the current line, including the newline.
+	 */
+	private void skipLine() throws IOException {
+		int c;
+		do {
+			c = this.next();
+		} while(c != '\n' && c != EOF);
+	}
+
+	private int peek() throws IOException {
+		if(this.position == this.limit && !this.fill())
+			return EOF;
+		return this.buffer[this.position];
+	}
+
+	private int next() throws IOException {
+		if(this.position == this.limit && !this.fill())
+			return EOF;
+		char c = this.buffer[this.position++];
+		if(c == '\n') {
+			this.line++;
+			this.column = 1;
+		} else {
+			this.column++;
+		}
+		return c;
+	}
+
+	private boolean fill() throws IOException {
+		int read;
+		do {
+			read = this.in.read(this.buffer, 0, this.buffer.length);
+		} while(read == 0);
+		if(read < 0)
+			return false;
+		this.position = 0;
+		this.limit = read;
+		return true;
+	}
+
+	private AutomatonFormatException error(String message) {
+		return new AutomatonFormatException(this.source, this.line, this.column, message);
+	}
+
+	private String describe(int c) {
+		if(c == EOF)
+			return "the end of the input";
+		if(c == '\n')
+			return "the end of the line";
+		return "'" + (char) c + "'";
+	}
+
+	private static int indexOf(char[] chars, int length, char c) {
+		for(int i = 0; i < length; i++) {
+			if(chars[i] == c)
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * The parsed form of an NFA file, with lambda as the last symbol of sigma.
+	 */
+	static class NFATables {
+		final char[] sigma;
+		final int numStates;
+		final int[] offsets;
+		final int[] targets;
+		final int initialState;
+		final int[] accepting;
+
+		NFATables(char[] sigma, int numStates, int[] offsets, int[] targets, int initialState, int[] accepting) {
+			this.sigma = sigma;
+			this.numStates = numStates;
+			this.offsets = offsets;
+			this.targets = targets;
+			this.initialState = initialState;
+			this.accepting = accepting;
+		}
+	}
+
+	/**
+	 * A growable list of primitive ints, to collect targets without boxing.
+	 */
+	private static class IntList {
+		private int[] values = new int[64];
+		private int size;
+
+		private void add(int value) {
+			if(this.size == this.values.length) {
+				this.values = Arrays.copyOf(this.values, this.size * 2);
+			}
+			this.values[this.size++] = value;
+		}
+
+		private int size() { return this.size; }
+		private int[] toArray() { return Arrays.copyOf(this.values, this.size); }
+	}
+
+}
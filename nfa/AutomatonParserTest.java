@@ -0,0 +1,115 @@
+package nfa;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class AutomatonParserTest {
+
+	private static final String NFA_2 =
+			"6\r\n" +
+			"  \ta  \tb\r\n" +
+			"0: \t{1}\t{4} {2}\r\n" +
+			"1:\t{5}\t{2}\t{}\r\n" +
+			"2:\t{5}\t{} {}\r\n" +
+			"3:\t{}\t{} {0}\r\n" +
+			"4:\t{}\t{1} {3}\r\n" +
+			"5:\t{}\t{} {4}\r\n" +
+			"0\r\n" +
+			"{5}";
+
+	private static final String DFA_E =
+			"3\n" +
+			"Sigma:     a     b\n" +
+			"------------------\n" +
+			"    0:     1     0\n" +
+			"    1:     2     0\n" +
+			"    2:     2     2\n" +
+			"------------------\n" +
+			"0: Initial State\n" +
+			"2: Accepting State(s)\n" +
+			"\n" +
+			"\n";
+
+	private static final String[] INPUTS = new String[] {
+			"", "a", "b", "aa", "ab", "ba", "aab", "bbaa", "abab", "c"
+	};
+
+	@Test
+	public void parsesNFAWithTabsAndCarriageReturns() throws IOException {
+		NFA nfa = new AutomatonParser(new StringReader(NFA_2)).parseNFA();
+
+		assertEquals(6, nfa.getNumStates());
+		assertArrayEquals(new char[] { 'a', 'b', '^' }, nfa.getSigma());
+		assertEquals(2, nfa.getState(0).applyTransition('^').length);
+		assertTrue(nfa.getState(5).isAccepting());
+		assertFalse(nfa.getState(4).isAccepting());
+	}
+
+	@Test
+	public void parsedDFAAgreesWithCompiledDFA() throws IOException {
+		DFA dfa = new AutomatonParser(new StringReader(DFA_E)).parseDFA();
+		CompiledDFA compiled = new AutomatonParser(
+				new ByteArrayInputStream(DFA_E.getBytes(StandardCharsets.UTF_8))).parseCompiledDFA();
+
+		assertEquals(3, compiled.getNumStates());
+		for(String input : INPUTS) {
+			assertEquals(input, input.contains("aa") && !input.contains("c"), dfa.testInput(input));
+			assertEquals(input, dfa.testInput(input), compiled.matches(input));
+		}
+	}
+
+	@Test
+	public void missingDFATransitionsReject() {
+		DFA dfa = new DFA(
+				"2\n" +
+				"Sigma: a b\n" +
+				"----------\n" +
+				"0: 1\n" +
+				"1: 1 1\n" +
+				"----------\n" +
+				"0: Initial State\n" +
+				"1: Accepting State(s)\n");
+
+		assertTrue(dfa.testInput("ab"));
+		assertFalse(dfa.testInput("ba"));
+	}
+
+	@Test
+	public void reportsLineAndColumn() {
+		try {
+			new NFA("2\na b\n0: {1} {x} {}\n1: {} {} {}\n0\n{1}\n");
+			fail();
+		} catch(AutomatonFormatException e) {
+			assertEquals(3, e.getLine());
+			assertEquals(9, e.getColumn());
+		}
+	}
+
+	@Test
+	public void rejectsStatesOutOfRange() {
+		try {
+			new DFA("2\nSigma: a\n---\n0: 1\n1: 2\n---\n0: Initial State\n1: Accepting State(s)\n");
+			fail();
+		} catch(AutomatonFormatException e) {
+			assertEquals(5, e.getLine());
+			assertEquals(4, e.getColumn());
+		}
+	}
+
+	@Test
+	public void rejectsTooManyTransitionSets() {
+		try {
+			new NFA("1\na\n0: {0} {} {}\n0\n{0}\n");
+			fail();
+		} catch(AutomatonFormatException e) {
+			assertEquals(3, e.getLine());
+			assertEquals(11, e.getColumn());
+		}
+	}
+
+}
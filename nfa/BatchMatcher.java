@@ -0,0 +1,225 @@
+package nfa;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A BatchMatcher tests large numbers of inputs against one automaton on a
+ * ForkJoinPool.  Inputs are split into chunks which are matched in parallel,
+ * and results are always reported in input order.
+ * The InputMatcher must be safe to call from several threads at once, such as
+ * a CompiledDFA, which is what the DFA and MinimizedDFA constructors use.
+ * @author mjoer
+ */
+public class BatchMatcher implements AutoCloseable {
+
+	public static final int DEFAULT_CHUNK_SIZE = 4096;
+
+	private final InputMatcher matcher;
+	private final ForkJoinPool pool;
+	private final int chunkSize;
+
+	public BatchMatcher(DFA dfa) {
+		this(dfa.compile());
+	}
+
+	public BatchMatcher(MinimizedDFA dfa) {
+		this(dfa.compile());
+	}
+
+	public BatchMatcher(InputMatcher matcher) {
+		this(matcher, Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Create a BatchMatcher with its own pool of worker threads.
+	 * @param matcher A thread-safe matcher to test inputs with
+	 * @param parallelism The number of worker threads
+	 * @param chunkSize The number of inputs handed to a worker at once.  It is
+	 * 		rounded up to a multiple of 64 so that chunks never share a word
+	 * 		of the result bitset.
+	 */
+	public BatchMatcher(InputMatcher matcher, int parallelism, int chunkSize) {
+		if(parallelism < 1)
+			throw new IllegalArgumentException("parallelism must be at least 1, got " + parallelism);
+		if(chunkSize < 1)
+			throw new IllegalArgumentException("chunkSize must be at least 1, got " + chunkSize);
+		this.matcher = matcher;
+		this.pool = new ForkJoinPool(parallelism);
+		this.chunkSize = (chunkSize + 63) & ~63;
+	}
+
+	/**
+	 * Test every input.
+	 * @param inputs The inputs to test
+	 * @return A bitset with bit i set if inputs[i] is accepted
+	 */
+	public BitSet matchIndices(CharSequence[] inputs) {
+		return this.matchIndices(Arrays.asList(inputs));
+	}
+
+	/**
+	 * Test every input.
+	 * @param inputs The inputs to test
+	 * @return A bitset with bit i set if inputs.get(i) is accepted
+	 */
+	public BitSet matchIndices(List<? extends CharSequence> inputs) {
+		long start = System.nanoTime();
+		long[] words = new long[(inputs.size() + 63) >>> 6];
+		this.pool.invoke(new MatchRange(inputs, words, 0, inputs.size()));
+		Metrics.get().inputsMatched(inputs.size(), System.nanoTime() - start);
+		return BitSet.valueOf(words);
+	}
+
+	/**
+	 * Test every input produced by an iterator.  Inputs are read in chunks, and
+	 * only a few chunks per worker are held in memory at once, so the iterator
+	 * may produce more inputs than fit in memory.
+	 * @param inputs The inputs to test
+	 * @return A bitset with bit i set if the i-th input is accepted
+	 */
+	public BitSet matchIndices(Iterator<? extends CharSequence> inputs) {
+		long start = System.nanoTime();
+		BitSet accepted = new BitSet();
+		long[] offset = new long[1];
+		long count = this.forEachChunk(inputs, chunk -> {
+			long[] words = new long[(chunk.size() + 63) >>> 6];
+			new MatchRange(chunk, words, 0, chunk.size()).compute();
+			return words;
+		}, words -> {
+			BitSet chunkBits = BitSet.valueOf(words);
+			for(int i = chunkBits.nextSetBit(0); i >= 0; i = chunkBits.nextSetBit(i + 1)) {
+				accepted.set((int) (offset[0] + i));
+			}
+			offset[0] += this.chunkSize;
+		});
+		Metrics.get().inputsMatched(count, System.nanoTime() - start);
+		return accepted;
+	}
+
+	public List<String> acceptedStrings(CharSequence[] inputs) {
+		return this.acceptedStrings(Arrays.asList(inputs));
+	}
+
+	/**
+	 * Test every input and collect the accepted ones.
+	 * @param inputs The inputs to test
+	 * @return The accepted inputs, in input order
+	 */
+	public List<String> acceptedStrings(List<? extends CharSequence> inputs) {
+		BitSet accepted = this.matchIndices(inputs);
+		List<String> result = new ArrayList<>(accepted.cardinality());
+		for(int i = accepted.nextSetBit(0); i >= 0; i = accepted.nextSetBit(i + 1)) {
+			result.add(inputs.get(i).toString());
+		}
+		return result;
+	}
+
+	/**
+	 * Test every input produced by an iterator and collect the accepted ones.
+	 * @param inputs The inputs to test
+	 * @return The accepted inputs, in input order
+	 */
+	public List<String> acceptedStrings(Iterator<? extends CharSequence> inputs) {
+		long start = System.nanoTime();
+		List<String> result = new ArrayList<>();
+		long count = this.forEachChunk(inputs, chunk -> {
+			List<String> accepted = new ArrayList<>();
+			for(CharSequence input : chunk) {
+				if(this.matcher.matches(input))
+					accepted.add(input.toString());
+			}
+			return accepted;
+		}, result::addAll);
+		Metrics.get().inputsMatched(count, System.nanoTime() - start);
+		return result;
+	}
+
+	/**
+	 * Read the iterator in chunks, process the chunks on the pool and hand the
+	 * results to the sink in input order.  At most two chunks per worker are
+	 * in flight at once.
+	 * @return The number of inputs read
+	 */
+	private <R> long forEachChunk(Iterator<? extends CharSequence> inputs,
+			Function<List<CharSequence>, R> work, Consumer<R> sink) {
+		int maxInFlight = 2 * this.pool.getParallelism();
+		ArrayDeque<ForkJoinTask<R>> inFlight = new ArrayDeque<>();
+		long count = 0;
+
+		while(inputs.hasNext()) {
+			List<CharSequence> chunk = new ArrayList<>(this.chunkSize);
+			while(chunk.size() < this.chunkSize && inputs.hasNext()) {
+				chunk.add(inputs.next());
+			}
+			count += chunk.size();
+			inFlight.add(this.pool.submit(() -> work.apply(chunk)));
+			if(inFlight.size() >= maxInFlight) {
+				sink.accept(inFlight.remove().join());
+			}
+		}
+		while(!inFlight.isEmpty()) {
+			sink.accept(inFlight.remove().join());
+		}
+		return count;
+	}
+
+	public int getParallelism() { return this.pool.getParallelism(); }
+	public int getChunkSize() { return this.chunkSize; }
+
+	/**
+	 * Shut down the worker threads of this BatchMatcher.
+	 */
+	@Override
+	public void close() {
+		this.pool.shutdown();
+	}
+
+	/**
+	 * Matches a range of inputs, splitting it in half until it is no larger than
+	 * a chunk.  Ranges always start on a multiple of the chunk size, so every task
+	 * writes to its own words of the result.
+	 */
+	private class MatchRange extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final List<? extends CharSequence> inputs;
+		private final long[] words;
+		private final int from;
+		private final int to;
+
+		private MatchRange(List<? extends CharSequence> inputs, long[] words, int from, int to) {
+			this.inputs = inputs;
+			this.words = words;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			int chunkSize = BatchMatcher.this.chunkSize;
+			if(this.to - this.from <= chunkSize) {
+				for(int i = this.from; i < this.to; i++) {
+					if(BatchMatcher.this.matcher.matches(this.inputs.get(i)))
+						this.words[i >>> 6] |= 1L << i;
+				}
+				return;
+			}
+			int chunks = (this.to - this.from + chunkSize - 1) / chunkSize;
+			int middle = this.from + (chunks / 2) * chunkSize;
+			ForkJoinTask.invokeAll(
+					new MatchRange(this.inputs, this.words, this.from, middle),
+					new MatchRange(this.inputs, this.words, middle, this.to));
+		}
+	}
+
+}
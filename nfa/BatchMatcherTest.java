@@ -0,0 +1,62 @@
+package nfa;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class BatchMatcherTest {
+
+	@Test
+	public void overloadsAgreeWithSequentialMatching() {
+		CompiledDFA dfa = new MinimizedDFA(RegexCompiler.glushkov("(a|b)*abb")).compile();
+		// Chunks are rounded up to 64 inputs, so this is many more inputs
+		// than fit in one chunk per worker, ending in a partial chunk
+		String[] inputs = BatchMatcherTest.randomInputs(1000, new Random(4));
+		BitSet expected = new BitSet();
+		List<String> accepted = new ArrayList<>();
+		for(int i = 0; i < inputs.length; i++) {
+			if(dfa.matches(inputs[i])) {
+				expected.set(i);
+				accepted.add(inputs[i]);
+			}
+		}
+		assertTrue(expected.cardinality() > 10);
+
+		try(BatchMatcher batch = new BatchMatcher(dfa, 4, 3)) {
+			List<String> list = Arrays.asList(inputs);
+			assertEquals(expected, batch.matchIndices(inputs));
+			assertEquals(expected, batch.matchIndices(list));
+			assertEquals(expected, batch.matchIndices(list.iterator()));
+
+			assertEquals(accepted, batch.acceptedStrings(inputs));
+			assertEquals(accepted, batch.acceptedStrings(list));
+			assertEquals(accepted, batch.acceptedStrings(list.iterator()));
+		}
+	}
+
+	@Test
+	public void handlesNoInputs() {
+		try(BatchMatcher batch = new BatchMatcher(new MinimizedDFA(RegexCompiler.glushkov("a")).compile(), 4, 3)) {
+			assertTrue(batch.matchIndices(new String[0]).isEmpty());
+			assertTrue(batch.acceptedStrings(new ArrayList<String>().iterator()).isEmpty());
+		}
+	}
+
+	private static String[] randomInputs(int count, Random random) {
+		String[] inputs = new String[count];
+		for(int i = 0; i < count; i++) {
+			char[] input = new char[random.nextInt(8)];
+			for(int c = 0; c < input.length; c++) {
+				input[c] = "ab".charAt(random.nextInt(2));
+			}
+			inputs[i] = new String(input);
+		}
+		return inputs;
+	}
+
+}
@@ -0,0 +1,123 @@
+package nfa;
+
+/**
+ * A BitParallelNFA tests input strings directly against an NFA, without
+ * building a DFA first.  The set of active NFA states is kept as a bitset.
+ * For every state and symbol the set of states reached by "move, then lambda
+ * close" is precomputed as a bit row, so reading a character is the OR of the
+ * rows of the active states.  The rows take states * |sigma| * states bits,
+ * so memory grows with the square of the number of NFA states, but it
+ * doesn't depend on how large the equivalent DFA is.
+ * @author mjoer
+ */
+public class BitParallelNFA implements InputMatcher {
+
+	private final char[] sigma;
+	private final int[] symbolIndex;
+	private final int numStates;
+	private final int words;
+	// rows[(state * sigma.length + symbol) * words ...] is the bit row for the pair
+	private final long[] rows;
+	private final long[] initialSet;
+	private final long[] accepting;
+
+	/**
+	 * Precompute the bit rows of an NFA.
+	 * @param nfa The NFA to match against
+	 * @throws IllegalArgumentException If the rows would be too large for an array
+	 */
+	public BitParallelNFA(NFA nfa) {
+		// Get sigma from nfa, minus lambda
+		char[] nfaSigma = nfa.getSigma();
+		this.sigma = new char[nfaSigma.length - 1];
+		System.arraycopy(nfaSigma, 0, this.sigma, 0, this.sigma.length);
+		this.symbolIndex = CompiledDFA.buildSymbolIndex(this.sigma);
+
+		this.numStates = nfa.getNumStates();
+		this.words = (this.numStates + 63) >>> 6;
+		long rowWords = (long) this.numStates * this.sigma.length * this.words;
+		if(rowWords > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("The bit rows of " + this.numStates + " states over " + this.sigma.length
+					+ " symbols need " + rowWords + " longs, more than an array can hold");
+		this.rows = new long[(int) rowWords];
+		this.accepting = new long[this.words];
+
+		LambdaClosureTable closures = nfa.getLambdaClosures();
+		for(int state = 0; state < this.numStates; state++) {
+			NFANode node = nfa.getState(state);
+			if(node.isAccepting()) {
+				this.accepting[state >>> 6] |= 1L << state;
+			}
+			for(int symbol = 0; symbol < this.sigma.length; symbol++) {
+				int rowStart = (state * this.sigma.length + symbol) * this.words;
+				for(NFANode target : node.applyTransition(this.sigma[symbol])) {
+					this.addToSet(this.rows, rowStart, closures.getClosure(target.getId()));
+				}
+			}
+		}
+
+		this.initialSet = new long[this.words];
+		this.addToSet(this.initialSet, 0, closures.getClosure(nfa.getInitialState().getId()));
+	}
+
+	private void addToSet(long[] set, int offset, StateSet states) {
+		for(int i = 0; i < states.size(); i++) {
+			int state = states.get(i);
+			set[offset + (state >>> 6)] |= 1L << state;
+		}
+	}
+
+	/**
+	 * Run the input through the NFA.  Every active set is closed under lambda
+	 * transitions, since the initial set and every bit row are.  Matching
+	 * allocates two bitsets of O(states) bits and nothing else, so an instance
+	 * can be shared between threads.
+	 * @param input The string to test
+	 * @return True if any accepting state is active at the end of the input
+	 */
+	@Override
+	public boolean matches(CharSequence input) {
+		long[] current = this.initialSet.clone();
+		long[] next = new long[this.words];
+
+		for(int i = 0; i < input.length(); i++) {
+			char c = input.charAt(i);
+			if(c >= this.symbolIndex.length || this.symbolIndex[c] == CompiledDFA.REJECT)
+				return false;
+			int symbol = this.symbolIndex[c];
+
+			boolean anyActive = false;
+			for(int w = 0; w < this.words; w++) {
+				next[w] = 0;
+			}
+			for(int w = 0; w < this.words; w++) {
+				long bits = current[w];
+				while(bits != 0) {
+					int state = (w << 6) + Long.numberOfTrailingZeros(bits);
+					bits &= bits - 1;
+					int rowStart = (state * this.sigma.length + symbol) * this.words;
+					for(int r = 0; r < this.words; r++) {
+						next[r] |= this.rows[rowStart + r];
+					}
+					anyActive = true;
+				}
+			}
+			if(!anyActive)
+				return false;
+
+			long[] swap = current;
+			current = next;
+			next = swap;
+		}
+
+		for(int w = 0; w < this.words; w++) {
+			if((current[w] & this.accepting[w]) != 0)
+				return true;
+		}
+		return false;
+	}
+
+	public int getNumStates() { return this.numStates; }
+	public char[] getSigma() { return this.sigma.clone(); }
+
+}
@@ -0,0 +1,43 @@
+package nfa;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class BitParallelNFATest {
+	
+	private static final String NFA_1 = 
+			"5\n" +
+			"a b c \n" +
+			"0: {} {} {} {1,2,3} \n" +
+			"1: {4} {1} {1} {} \n" +
+			"2: {2} {4} {2} {} \n" +
+			"3: {3} {3} {4} {} \n" +
+			"4: {4} {4} {4} {} \n" +
+			"0\n" +
+			"{1,2,3}\n";
+	
+	private static final String[] INPUTS = new String[] {
+			"", "a", "b", "c", "ab", "abc", "bcbc", "aabbcc", "ccc", "cab", "abd", "^"
+	};
+	
+	@Test
+	public void matchesAgreeWithDFA() {
+		NFA nfa = new NFA(NFA_1);
+		DFA dfa = new DFA(nfa);
+		InputMatcher simulated = new BitParallelNFA(nfa);
+		
+		for(String input : INPUTS) {
+			assertEquals(input, dfa.testInput(input), simulated.matches(input));
+		}
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsRowsTooLargeForAnArray() {
+		// 100000 states over 14 symbols need about 2.2 billion longs of rows
+		int numStates = 100000;
+		char[] sigma = "abcdefghijklmn^".toCharArray();
+		int[] offsets = new int[numStates * sigma.length + 1];
+		new BitParallelNFA(new NFA(new AutomatonParser.NFATables(sigma, numStates, offsets, new int[0], 0, new int[0])));
+	}
+	
+}
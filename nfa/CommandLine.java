@@ -0,0 +1,46 @@
+package nfa;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Splits the arguments of a main method into options and plain arguments.
+ * Options start with "--".  Options named when the CommandLine is created
+ * take the next argument as their value; any other option is a flag.
+ * @author mjoer
+ */
+public class CommandLine {
+	
+	private final String[] arguments;
+	private final HashMap<String, String> options;
+	
+	/**
+	 * @param args The arguments passed to main
+	 * @param valueOptions The options which are followed by a value
+	 */
+	public CommandLine(String[] args, String ... valueOptions) {
+		HashSet<String> takesValue = new HashSet<>(Arrays.asList(valueOptions));
+		List<String> plain = new ArrayList<>();
+		this.options = new HashMap<>();
+		
+		for(int i = 0; i < args.length; i++) {
+			if(!args[i].startsWith("--")) {
+				plain.add(args[i]);
+			} else if(takesValue.contains(args[i])) {
+				if(i + 1 >= args.length)
+					throw new IllegalArgumentException("Option " + args[i] + " requires a value");
+				this.options.put(args[i], args[++i]);
+			} else {
+				this.options.put(args[i], null);
+			}
+		}
+		this.arguments = plain.toArray(new String[plain.size()]);
+	}
+	
+	public String[] getArguments() { return this.arguments; }
+	public boolean hasOption(String name) { return this.options.containsKey(name); }
+	public String getOption(String name) { return this.options.get(name); }
+	
+}
@@ -0,0 +1,414 @@
+package nfa;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+/**
+ * A CompiledDFA is an immutable, table-driven form of a DFA or MinimizedDFA.
+ * Symbols which every state handles the same way share a SymbolClasses
+ * class, and transitions are stored in a flat int[] indexed by
+ * (state * classes + class), so a wide alphabet with few distinct columns
+ * takes a narrow table.  Characters are mapped straight to their class
+ * through a lookup array, in which every character outside sigma maps to
+ * REJECT, and the accepting states are kept in a bitset.  Once built it holds no references
+ * to DFANodes, so a single instance can be shared between threads.
+ * @author mjoer
+ */
+public class CompiledDFA implements InputMatcher {
+
+	public static final int REJECT = -1;
+
+	/**
+	 * What the rest of an input can do from a state.
+	 */
+	public enum StateKind {
+		/** No accepting state can be reached, so every input is rejected */
+		DEAD,
+		/**
+		 * An accepting state which every symbol loops on, so the input is
+		 * accepted unless it holds a character outside sigma
+		 */
+		ACCEPTING_SINK,
+		/** Some symbols loop on the state, so reading them needs no table lookup */
+		SELF_LOOP,
+		ORDINARY
+	}
+
+	private final char[] sigma;
+	private final SymbolClasses classes;
+	// Maps characters to their class
+	private final int[] classIndex;
+	private final int numClasses;
+	private final int[] transitions;
+	private final long[] accepting;
+	private final int numStates;
+	private final int initialState;
+	// Bitset of the states from which no accepting state can be reached
+	private final long[] dead;
+	// For every state, a mask of the classes which lead back to it, or 0
+	// if there are more classes than fit in a long
+	private final long[] selfLoops;
+
+	public CompiledDFA(DFA dfa) {
+		this(dfa.getSigma(), dfa.getStates(), dfa.getInitialState());
+	}
+
+	public CompiledDFA(MinimizedDFA dfa) {
+		this(dfa.getSigma(), dfa.getStates(), dfa.getInitialState());
+	}
+
+	/**
+	 * Compile a set of DFANodes into a transition table.  States are numbered
+	 * by their position in the states array.  A transition which is missing
+	 * from a DFANode is stored as REJECT.
+	 * @param sigma The alphabet of the automaton
+	 * @param states Every state of the automaton
+	 * @param initialState The initial state, which must be one of states
+	 */
+	private CompiledDFA(char[] sigma, DFANode[] states, DFANode initialState) {
+		this.sigma = sigma.clone();
+		this.numStates = states.length;
+
+		IdentityHashMap<DFANode, Integer> stateNumbers = new IdentityHashMap<>();
+		for(int i = 0; i < states.length; i++) {
+			stateNumbers.put(states[i], i);
+		}
+
+		int[] transitions = new int[this.numStates * this.sigma.length];
+		this.accepting = new long[(this.numStates + 63) >>> 6];
+		for(int state = 0; state < this.numStates; state++) {
+			for(int symbol = 0; symbol < this.sigma.length; symbol++) {
+				DFANode next = states[state].applyTransition(this.sigma[symbol]);
+				transitions[state * this.sigma.length + symbol] = next == null ? REJECT : stateNumbers.get(next);
+			}
+			if(states[state].isAccepting()) {
+				this.accepting[state >>> 6] |= 1L << state;
+			}
+		}
+
+		this.classes = SymbolClasses.of(transitions, this.numStates, this.sigma.length);
+		this.numClasses = this.classes.getNumClasses();
+		this.classIndex = CompiledDFA.buildClassIndex(this.sigma, this.classes);
+		this.transitions = this.classes.compress(transitions, this.numStates);
+		this.initialState = stateNumbers.get(initialState);
+		this.dead = CompiledDFA.findDeadStates(this.transitions, this.numStates, this.numClasses, this.accepting);
+		this.selfLoops = CompiledDFA.findSelfLoops(this.transitions, this.numStates, this.numClasses);
+	}
+
+	/**
+	 * Create a CompiledDFA from its tables, as read back by CompiledDFAFormat.
+	 * The arrays are used as they are, not copied.
+	 * @param transitions The transition table, indexed by (state * sigma + symbol)
+	 */
+	CompiledDFA(char[] sigma, int numStates, int initialState, int[] transitions, long[] accepting) {
+		this(sigma, SymbolClasses.of(transitions, numStates, sigma.length), numStates, initialState, transitions, accepting);
+	}
+
+	private CompiledDFA(char[] sigma, SymbolClasses classes, int numStates, int initialState, int[] transitions, long[] accepting) {
+		this(sigma, classes, numStates, initialState, accepting, classes.compress(transitions, numStates));
+	}
+
+	/**
+	 * Create a CompiledDFA from a table which already has one column per
+	 * class, such as a renumbered copy of another CompiledDFA.
+	 * @param classTransitions The transition table, indexed by (state * classes + class)
+	 */
+	CompiledDFA(char[] sigma, SymbolClasses classes, int numStates, int initialState, long[] accepting, int[] classTransitions) {
+		this.sigma = sigma;
+		this.classes = classes;
+		this.numClasses = classes.getNumClasses();
+		this.numStates = numStates;
+		this.initialState = initialState;
+		this.transitions = classTransitions;
+		this.accepting = accepting;
+		this.classIndex = CompiledDFA.buildClassIndex(sigma, classes);
+		this.dead = CompiledDFA.findDeadStates(classTransitions, numStates, this.numClasses, accepting);
+		this.selfLoops = CompiledDFA.findSelfLoops(classTransitions, numStates, this.numClasses);
+	}
+
+	/**
+	 * Find the states from which no accepting state can be reached, by
+	 * searching backwards from the accepting states.
+	 * @return A bitset of the dead states
+	 */
+	private static long[] findDeadStates(int[] transitions, int numStates, int numClasses, long[] accepting) {
+		// Predecessors of every state in CSR form
+		int[] offsets = new int[numStates + 1];
+		for(int target : transitions) {
+			if(target != REJECT) {
+				offsets[target + 1]++;
+			}
+		}
+		for(int state = 0; state < numStates; state++) {
+			offsets[state + 1] += offsets[state];
+		}
+		int[] predecessors = new int[offsets[numStates]];
+		int[] fill = Arrays.copyOf(offsets, numStates);
+		for(int i = 0; i < numStates * numClasses; i++) {
+			if(transitions[i] != REJECT) {
+				predecessors[fill[transitions[i]]++] = i / numClasses;
+			}
+		}
+
+		long[] live = new long[(numStates + 63) >>> 6];
+		int[] queue = new int[numStates];
+		int tail = 0;
+		for(int state = 0; state < numStates; state++) {
+			if((accepting[state >>> 6] & (1L << state)) != 0) {
+				live[state >>> 6] |= 1L << state;
+				queue[tail++] = state;
+			}
+		}
+		for(int head = 0; head < tail; head++) {
+			int state = queue[head];
+			for(int i = offsets[state]; i < offsets[state + 1]; i++) {
+				int from = predecessors[i];
+				if((live[from >>> 6] & (1L << from)) == 0) {
+					live[from >>> 6] |= 1L << from;
+					queue[tail++] = from;
+				}
+			}
+		}
+
+		long[] dead = new long[live.length];
+		for(int state = 0; state < numStates; state++) {
+			if((live[state >>> 6] & (1L << state)) == 0) {
+				dead[state >>> 6] |= 1L << state;
+			}
+		}
+		return dead;
+	}
+
+	/**
+	 * @return For every state, the mask of the classes which lead back to it
+	 */
+	private static long[] findSelfLoops(int[] transitions, int numStates, int numClasses) {
+		long[] selfLoops = new long[numStates];
+		if(numClasses > 64)
+			return selfLoops;
+		for(int state = 0; state < numStates; state++) {
+			for(int symbolClass = 0; symbolClass < numClasses; symbolClass++) {
+				if(transitions[state * numClasses + symbolClass] == state) {
+					selfLoops[state] |= 1L << symbolClass;
+				}
+			}
+		}
+		return selfLoops;
+	}
+
+	/**
+	 * Build the lookup array from characters to symbol indices.  The array is
+	 * only as long as the largest character in sigma; any character past the
+	 * end of it, or mapped to REJECT, is not part of the alphabet.
+	 * @param sigma The alphabet to index
+	 * @return An array mapping characters to their index in sigma
+	 */
+	static int[] buildSymbolIndex(char[] sigma) {
+		int maxChar = -1;
+		for(char c : sigma) {
+			maxChar = Math.max(maxChar, c);
+		}
+		int[] index = new int[maxChar + 1];
+		for(int i = 0; i < index.length; i++) {
+			index[i] = REJECT;
+		}
+		for(int i = 0; i < sigma.length; i++) {
+			index[sigma[i]] = i;
+		}
+		return index;
+	}
+
+	/**
+	 * Build the lookup array from characters to their class, like
+	 * buildSymbolIndex.
+	 * @param sigma The alphabet to index
+	 * @param classes The classes of the symbols of sigma
+	 * @return An array mapping characters to their class
+	 */
+	static int[] buildClassIndex(char[] sigma, SymbolClasses classes) {
+		int[] index = CompiledDFA.buildSymbolIndex(sigma);
+		for(int c = 0; c < index.length; c++) {
+			if(index[c] != REJECT) {
+				index[c] = classes.classOf(index[c]);
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Run the input through the automaton.  This does not allocate and only
+	 * reads the immutable tables, so it may be called from any thread.
+	 * Matching stops as soon as a dead state is reached, and characters which
+	 * loop on the current state are only checked against sigma.
+	 * @param input The string to test
+	 * @return True if the automaton ends in an accepting state, false otherwise
+	 */
+	@Override
+	public boolean matches(CharSequence input) {
+		int state = this.run(this.initialState, input, 0, input.length());
+		return state != REJECT && this.isAccepting(state);
+	}
+
+	/**
+	 * Run part of an input from a state.  The run stops early, at REJECT or
+	 * at a dead state, once the result can't change any more.  Every other
+	 * character is still read and mapped to its class, one at a time; a
+	 * character which loops on the current state only saves the lookup in
+	 * the transition table.
+	 * @param state The state to start from
+	 * @param input The input
+	 * @param from The index of the first character to read
+	 * @param to The index after the last character to read
+	 * @return The state reached, REJECT, or a dead state
+	 */
+	int run(int state, CharSequence input, int from, int to) {
+		if(this.isDead(state))
+			return state;
+		long loops = this.selfLoops[state];
+		for(int i = from; i < to; i++) {
+			char c = input.charAt(i);
+			if(c >= this.classIndex.length)
+				return REJECT;
+			int symbolClass = this.classIndex[c];
+			if(symbolClass == REJECT)
+				return REJECT;
+			// A self loop doesn't need the table
+			if((loops & (1L << symbolClass)) != 0)
+				continue;
+			state = this.transitions[state * this.numClasses + symbolClass];
+			if(this.isDead(state))
+				return state;
+			loops = this.selfLoops[state];
+		}
+		return state;
+	}
+
+	/**
+	 * Run part of a char array from a state, like run over a CharSequence.
+	 * Self loops save only the transition lookup here too.
+	 */
+	int run(int state, char[] input, int from, int to) {
+		if(this.isDead(state))
+			return state;
+		long loops = this.selfLoops[state];
+		for(int i = from; i < to; i++) {
+			char c = input[i];
+			if(c >= this.classIndex.length)
+				return REJECT;
+			int symbolClass = this.classIndex[c];
+			if(symbolClass == REJECT)
+				return REJECT;
+			if((loops & (1L << symbolClass)) != 0)
+				continue;
+			state = this.transitions[state * this.numClasses + symbolClass];
+			if(this.isDead(state))
+				return state;
+			loops = this.selfLoops[state];
+		}
+		return state;
+	}
+
+	/**
+	 * Apply a single transition.
+	 * @param state The current state number
+	 * @param c The input character
+	 * @return The next state number, or REJECT if c is not in sigma
+	 */
+	public int step(int state, char c) {
+		if(c >= this.classIndex.length)
+			return REJECT;
+		int symbolClass = this.classIndex[c];
+		if(symbolClass == REJECT)
+			return REJECT;
+		return this.transitions[state * this.numClasses + symbolClass];
+	}
+
+	/**
+	 * Build the complement of this DFA within sigma*: it accepts exactly the
+	 * strings over sigma which this DFA rejects.  Strings with a character
+	 * outside sigma are still rejected.  Missing transitions go to a new
+	 * accepting sink state.
+	 * @return The complement
+	 */
+	public CompiledDFA complement() {
+		int sink = this.numStates;
+		int[] transitions = new int[(this.numStates + 1) * this.numClasses];
+		for(int i = 0; i < this.transitions.length; i++) {
+			transitions[i] = this.transitions[i] == REJECT ? sink : this.transitions[i];
+		}
+		for(int symbolClass = 0; symbolClass < this.numClasses; symbolClass++) {
+			transitions[sink * this.numClasses + symbolClass] = sink;
+		}
+		long[] accepting = new long[(this.numStates + 1 + 63) >>> 6];
+		for(int state = 0; state <= this.numStates; state++) {
+			if(state == sink || !this.isAccepting(state)) {
+				accepting[state >>> 6] |= 1L << state;
+			}
+		}
+		return new CompiledDFA(this.sigma, this.classes, this.numStates + 1, this.initialState, accepting, transitions);
+	}
+
+	/**
+	 * Create a streaming Matcher over this DFA.
+	 * @return A new Matcher in the initial state
+	 */
+	public Matcher matcher() {
+		return new Matcher(this);
+	}
+
+	public boolean isAccepting(int state) {
+		return (this.accepting[state >>> 6] & (1L << state)) != 0;
+	}
+
+	/**
+	 * @param state A state number.  REJECT isn't a state, so it gives false.
+	 * @return True if no accepting state can be reached from the state
+	 */
+	public boolean isDead(int state) {
+		if(state == REJECT)
+			return false;
+		return (this.dead[state >>> 6] & (1L << state)) != 0;
+	}
+
+	/**
+	 * Classify a state by what the rest of an input can do from it.
+	 * @param state The state to classify.  REJECT isn't a state, but nothing
+	 * 		can be accepted after it either, so it is DEAD.
+	 * @return The kind of the state
+	 */
+	public StateKind getStateKind(int state) {
+		if(state == REJECT)
+			return StateKind.DEAD;
+		if(this.isDead(state))
+			return StateKind.DEAD;
+		int loops = 0;
+		for(int symbolClass = 0; symbolClass < this.numClasses; symbolClass++) {
+			if(this.transitions[state * this.numClasses + symbolClass] == state) {
+				loops++;
+			}
+		}
+		if(loops == this.numClasses && this.isAccepting(state))
+			return StateKind.ACCEPTING_SINK;
+		return loops > 0 ? StateKind.SELF_LOOP : StateKind.ORDINARY;
+	}
+
+	public int getInitialState() { return this.initialState; }
+	public int getNumStates() { return this.numStates; }
+	public char[] getSigma() { return this.sigma.clone(); }
+	/**
+	 * @return The number of columns in the transition table, at most the
+	 * 		size of sigma
+	 */
+	public int getNumSymbolClasses() { return this.numClasses; }
+
+	SymbolClasses getSymbolClasses() { return this.classes; }
+	/**
+	 * @return The transition table, indexed by (state * classes + class)
+	 */
+	int[] getTransitions() { return this.transitions; }
+	/**
+	 * @return The transition table, indexed by (state * sigma + symbol)
+	 */
+	int[] getSymbolTransitions() { return this.classes.expand(this.transitions, this.numStates); }
+	long[] getAccepting() { return this.accepting; }
+
+}
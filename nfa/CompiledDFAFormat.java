@@ -0,0 +1,141 @@
+package nfa;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Reads and writes CompiledDFAs in a compact binary format, so that an
+ * automaton only has to be parsed, determinized and minimized once.
+ * All values are big-endian:
+ * <pre>
+ *   int     magic ("DFAC")
+ *   int     version
+ *   int     sigma length, then one char per symbol
+ *   int     number of states
+ *   int     initial state
+ *   int[]   transition table, (states * sigma) entries
+ *   long[]  accepting bitset, ((states + 63) / 64) entries
+ *   long    CRC32 of everything before it
+ * </pre>
+ * Reading maps the file and copies each table out in a single bulk read.
+ * @author mjoer
+ */
+public class CompiledDFAFormat {
+
+	public static final int MAGIC = 0x44464143;
+	public static final int VERSION = 1;
+
+	private CompiledDFAFormat() {}
+
+	/**
+	 * Write a CompiledDFA to a file, replacing the file if it exists.
+	 * @param dfa The automaton to write
+	 * @param path The file to write to
+	 * @throws IOException If the file can't be written
+	 */
+	public static void write(CompiledDFA dfa, Path path) throws IOException {
+		char[] sigma = dfa.getSigma();
+		int[] transitions = dfa.getSymbolTransitions();
+		long[] accepting = dfa.getAccepting();
+
+		long size = 5L * Integer.BYTES + (long) sigma.length * Character.BYTES
+				+ (long) transitions.length * Integer.BYTES + (long) accepting.length * Long.BYTES + Long.BYTES;
+		if(size > Integer.MAX_VALUE)
+			throw new IOException("Automaton is too large to write: " + size + " bytes");
+
+		ByteBuffer buffer = ByteBuffer.allocate((int) size);
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(sigma.length);
+		buffer.asCharBuffer().put(sigma);
+		buffer.position(buffer.position() + sigma.length * Character.BYTES);
+		buffer.putInt(dfa.getNumStates());
+		buffer.putInt(dfa.getInitialState());
+		buffer.asIntBuffer().put(transitions);
+		buffer.position(buffer.position() + transitions.length * Integer.BYTES);
+		buffer.asLongBuffer().put(accepting);
+		buffer.position(buffer.position() + accepting.length * Long.BYTES);
+
+		CRC32 crc = new CRC32();
+		crc.update(buffer.array(), 0, buffer.position());
+		buffer.putLong(crc.getValue());
+		buffer.flip();
+
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE,
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			while(buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+	}
+
+	/**
+	 * Read a CompiledDFA written by write.
+	 * @param path The file to read
+	 * @return The automaton
+	 * @throws IOException If the file can't be read, is not in this format,
+	 * 		or fails its checksum
+	 */
+	public static CompiledDFA read(Path path) throws IOException {
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if(size > Integer.MAX_VALUE || size < 7L * Integer.BYTES + Long.BYTES)
+				throw new IOException(path + " is not a compiled automaton: unexpected size " + size);
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+			int checked = (int) size - Long.BYTES;
+			ByteBuffer checkedRegion = buffer.duplicate();
+			checkedRegion.limit(checked);
+			CRC32 crc = new CRC32();
+			crc.update(checkedRegion);
+			if(crc.getValue() != buffer.getLong(checked))
+				throw new IOException(path + " is corrupt: checksum mismatch");
+
+			if(buffer.getInt() != MAGIC)
+				throw new IOException(path + " is not a compiled automaton: bad magic number");
+			int version = buffer.getInt();
+			if(version != VERSION)
+				throw new IOException(path + " has unsupported version " + version + ", expected " + VERSION);
+
+			int sigmaLength = CompiledDFAFormat.readCount(buffer, checked, Character.BYTES, path);
+			char[] sigma = new char[sigmaLength];
+			buffer.asCharBuffer().get(sigma);
+			buffer.position(buffer.position() + sigmaLength * Character.BYTES);
+
+			int numStates = buffer.getInt();
+			int initialState = buffer.getInt();
+			if(numStates < 1 || initialState < 0 || initialState >= numStates)
+				throw new IOException(path + " is corrupt: " + numStates + " states with initial state " + initialState);
+
+			long tableLength = (long) numStates * sigmaLength;
+			long expected = buffer.position() + tableLength * Integer.BYTES + ((numStates + 63L) >>> 6) * Long.BYTES;
+			if(expected != checked)
+				throw new IOException(path + " is corrupt: expected " + (expected + Long.BYTES) + " bytes, found " + size);
+
+			int[] transitions = new int[(int) tableLength];
+			buffer.asIntBuffer().get(transitions);
+			buffer.position(buffer.position() + transitions.length * Integer.BYTES);
+			long[] accepting = new long[(numStates + 63) >>> 6];
+			buffer.asLongBuffer().get(accepting);
+
+			for(int target : transitions) {
+				if(target < CompiledDFA.REJECT || target >= numStates)
+					throw new IOException(path + " is corrupt: transition to state " + target);
+			}
+
+			return new CompiledDFA(sigma, numStates, initialState, transitions, accepting);
+		}
+	}
+
+	private static int readCount(ByteBuffer buffer, int limit, int elementSize, Path path) throws IOException {
+		int count = buffer.getInt();
+		if(count < 0 || (long) count * elementSize > limit - buffer.position())
+			throw new IOException(path + " is corrupt: bad length " + count);
+		return count;
+	}
+
+}
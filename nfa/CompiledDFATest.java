@@ -0,0 +1,236 @@
+package nfa;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.CharBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class CompiledDFATest {
+	
+	private static final String DFA_B = 
+			"8\n" +
+			"Sigma:     a     b     c\n" +
+			"------------------------\n" +
+			"    0:     1     2     3\n" +
+			"    1:     1     4     5\n" +
+			"    2:     4     2     6\n" +
+			"    3:     5     6     3\n" +
+			"    4:     4     4     7\n" +
+			"    5:     5     7     5\n" +
+			"    6:     7     6     6\n" +
+			"    7:     7     7     7\n" +
+			"------------------------\n" +
+			"0: Initial State\n" +
+			"0,1,2,3,4,5,6: Accepting State(s)\n";
+	
+	private static final String[] INPUTS = new String[] {
+			"", "a", "abc", "aabb", "cccab", "abcabc", "bbbbb", "abd", "d", "ca"
+	};
+	
+	@Test
+	public void matchesAgreeWithDFA() {
+		DFA dfa = new DFA(DFA_B);
+		CompiledDFA compiled = dfa.compile();
+		
+		for(String input : INPUTS) {
+			assertEquals(input, dfa.testInput(input), compiled.matches(input));
+		}
+	}
+	
+	@Test
+	public void matchesAgreeWithMinimizedDFA() {
+		MinimizedDFA mini = new DFA(DFA_B).minimize();
+		CompiledDFA compiled = mini.compile();
+		
+		for(String input : INPUTS) {
+			assertEquals(input, mini.testInput(input), compiled.matches(input));
+		}
+	}
+	
+	@Test
+	public void rejectsCharactersOutsideSigma() {
+		CompiledDFA compiled = new DFA(DFA_B).compile();
+		
+		assertTrue(compiled.matches("ab"));
+		assertFalse(compiled.matches("a\u00e9"));
+		assertEquals(CompiledDFA.REJECT, compiled.step(compiled.getInitialState(), 'z'));
+	}
+	
+	@Test
+	public void matcherAcceptsChunks() throws IOException {
+		MinimizedDFA mini = new DFA(DFA_B).minimize();
+		Matcher matcher = mini.matcher();
+		
+		for(String input : INPUTS) {
+			matcher.reset();
+			int half = input.length() / 2;
+			matcher.feed(input.toCharArray(), 0, half);
+			matcher.feed(CharBuffer.wrap(input.substring(half)));
+			assertEquals(input, mini.testInput(input), matcher.isAccepting());
+			
+			matcher.reset().feed(new StringReader(input));
+			assertEquals(input, mini.testInput(input), matcher.isAccepting());
+		}
+	}
+	
+	@Test
+	public void matcherStaysRejected() {
+		Matcher matcher = new DFA(DFA_B).compile().matcher();
+		
+		matcher.feed("ab").feed('z');
+		assertTrue(matcher.isRejected());
+		matcher.feed("abc");
+		assertFalse(matcher.isAccepting());
+		assertEquals(6, matcher.getConsumed());
+		
+		assertTrue(matcher.reset().feed("ab").isAccepting());
+	}
+	
+	@Test
+	public void binaryFormatRoundTrips() throws IOException {
+		CompiledDFA compiled = new DFA(DFA_B).minimize().compile();
+		Path file = Files.createTempFile("dfaB", ".dfac");
+		try {
+			CompiledDFAFormat.write(compiled, file);
+			CompiledDFA loaded = CompiledDFAFormat.read(file);
+			
+			assertEquals(compiled.getNumStates(), loaded.getNumStates());
+			assertArrayEquals(compiled.getSigma(), loaded.getSigma());
+			for(String input : INPUTS) {
+				assertEquals(input, compiled.matches(input), loaded.matches(input));
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+	
+	@Test(expected = IOException.class)
+	public void binaryFormatRejectsCorruptFiles() throws IOException {
+		Path file = Files.createTempFile("dfaB", ".dfac");
+		try {
+			CompiledDFAFormat.write(new DFA(DFA_B).compile(), file);
+			byte[] bytes = Files.readAllBytes(file);
+			bytes[bytes.length / 2] ^= 1;
+			Files.write(file, bytes);
+			CompiledDFAFormat.read(file);
+		} finally {
+			Files.delete(file);
+		}
+	}
+	
+	@Test
+	public void breadthFirstLayoutKeepsTheLanguage() {
+		for(long seed = 0; seed < 5; seed++) {
+			CompiledDFA compiled = new DFA(AutomatonGenerator.randomDFA(50, 3, 0.3, seed)).compile();
+			CompiledDFA laidOut = StateLayout.breadthFirst(compiled);
+			
+			assertEquals(0, laidOut.getInitialState());
+			assertEquals(compiled.getNumStates(), laidOut.getNumStates());
+			for(String input : INPUTS) {
+				assertEquals(input, compiled.matches(input), laidOut.matches(input));
+			}
+		}
+	}
+	
+	@Test
+	public void frequencyLayoutPutsHotStatesFirst() {
+		CompiledDFA compiled = new DFA(DFA_B).compile();
+		// Every input runs into state 7 and stays there
+		CompiledDFA laidOut = StateLayout.byFrequency(compiled, Arrays.asList("abcccc", "bacccc", "caaaaa"));
+		
+		assertEquals(0, laidOut.getInitialState());
+		int hot = laidOut.step(laidOut.step(laidOut.step(0, 'a'), 'b'), 'c');
+		assertEquals(1, hot);
+		assertFalse(laidOut.isAccepting(hot));
+		for(String input : INPUTS) {
+			assertEquals(input, compiled.matches(input), laidOut.matches(input));
+		}
+	}
+	
+	@Test
+	public void equivalentSymbolsShareAColumn() throws IOException {
+		// b, c and d take every state to the same place, and e is never used
+		String wide =
+				"3\n" +
+				"Sigma:     a     b     c     d     e\n" +
+				"------------------------------------\n" +
+				"    0:     1     2     2     2     2\n" +
+				"    1:     1     0     0     0     0\n" +
+				"    2:     2     2     2     2     2\n" +
+				"------------------------------------\n" +
+				"0: Initial State\n" +
+				"1: Accepting State(s)\n";
+		DFA dfa = new DFA(wide);
+		CompiledDFA compiled = dfa.compile();
+		
+		assertEquals(2, compiled.getNumSymbolClasses());
+		assertEquals(2, dfa.minimize().compile().getNumSymbolClasses());
+		for(String input : new String[] { "a", "ab", "aba", "aea", "eaa", "x", "" }) {
+			assertEquals(input, dfa.testInput(input), compiled.matches(input));
+		}
+		
+		Path file = Files.createTempFile("wide", ".dfac");
+		try {
+			CompiledDFAFormat.write(compiled, file);
+			CompiledDFA loaded = CompiledDFAFormat.read(file);
+			assertEquals(2, loaded.getNumSymbolClasses());
+			assertArrayEquals(compiled.getSymbolTransitions(), loaded.getSymbolTransitions());
+		} finally {
+			Files.delete(file);
+		}
+	}
+	
+	@Test
+	public void classifiesStates() {
+		CompiledDFA compiled = new DFA(DFA_B).compile();
+		assertEquals(CompiledDFA.StateKind.ORDINARY, compiled.getStateKind(0));
+		assertEquals(CompiledDFA.StateKind.SELF_LOOP, compiled.getStateKind(1));
+		assertEquals(CompiledDFA.StateKind.DEAD, compiled.getStateKind(7));
+		assertTrue(compiled.isDead(7));
+		assertFalse(compiled.isDead(CompiledDFA.REJECT));
+		assertEquals(CompiledDFA.StateKind.DEAD, compiled.getStateKind(CompiledDFA.REJECT));
+		
+		CompiledDFA sink = new MinimizedDFA(RegexCompiler.glushkov("a(a|b)*")).compile();
+		int state = sink.step(sink.getInitialState(), 'a');
+		assertEquals(CompiledDFA.StateKind.ACCEPTING_SINK, sink.getStateKind(state));
+		assertTrue(sink.matches("abbab"));
+		assertFalse(sink.matches("abbzb"));
+	}
+	
+	@Test
+	public void matcherStopsAtDeadStates() {
+		Matcher matcher = new DFA(DFA_B).compile().matcher();
+		
+		matcher.feed("abc");
+		assertTrue(matcher.isRejected());
+		assertEquals(7, matcher.getState());
+		matcher.feed(new char[] { 'a', 'b' }, 0, 2).feed('c');
+		assertFalse(matcher.isAccepting());
+		assertEquals(6, matcher.getConsumed());
+	}
+	
+	@Test
+	public void selfLoopShortcutKeepsTheLanguage() {
+		for(int seed = 0; seed < 20; seed++) {
+			DFA dfa = new DFA(new NFA(AutomatonGenerator.randomNFA(12, 3, 0.3, 0.3, 0.1, seed)));
+			CompiledDFA compiled = dfa.compile();
+			Random random = new Random(seed);
+			for(int n = 0; n < 100; n++) {
+				char[] input = new char[random.nextInt(20)];
+				for(int i = 0; i < input.length; i++) {
+					input[i] = dfa.getSigma()[random.nextInt(dfa.getSigma().length)];
+				}
+				String string = new String(input);
+				assertEquals(string, dfa.matches(string), compiled.matches(string));
+				assertEquals(string, dfa.matches(string), compiled.matcher().feed(input, 0, input.length).isAccepting());
+			}
+		}
+	}
+	
+}
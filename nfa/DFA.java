@@ -1,9 +1,12 @@
 package nfa;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.stream.Collectors;
 
-public class DFA {
+public class DFA implements InputMatcher {
 	
 	private DFANode[] states;
 	private DFANode[] acceptingStates;
@@ -11,90 +14,111 @@ public class DFA {
 	private char[] sigma;
 	
 	public DFA(String dfaString) {
-		String[] lines = dfaString.split("\n");
-		
-		int numStates = Integer.parseInt(lines[0]);
-		
-		String[] sigmaLine = Reader.tokenize(lines[1], " ");
+		this(AutomatonParser.dfaTables(dfaString));
+	}
+	
+	/**
+	 * Create the states of a DFA from a transition table, such as the one
+	 * read by AutomatonParser.  A REJECT entry becomes a missing transition.
+	 */
+	DFA(CompiledDFA table) {
+		this.sigma = table.getSigma();
+		int[] transitions = table.getTransitions();
+		SymbolClasses classes = table.getSymbolClasses();
+		int numClasses = classes.getNumClasses();
+		int numStates = table.getNumStates();
 		
-		this.sigma = new char[sigmaLine.length - 1];
 		this.states = new DFANode[numStates];
-		
 		for(int i = 0; i < numStates; i++) {
 			this.states[i] = new DFANode();
+			this.states[i].setLabel(i + "");
 		}
 		
-		for(int i = 1; i < sigmaLine.length; i++) {
-			this.sigma[i - 1] = sigmaLine[i].charAt(0);
-		}
-		
-		for(int lineNum = 3; lineNum < 3 + numStates; lineNum++) {
-			String[] transitions = Reader.tokenize(lines[lineNum], " ");
-			int currentStateNum = lineNum - 3;
-			this.states[currentStateNum].setLabel(currentStateNum + "");
-			for(int i = 1; i < transitions.length; i++) {
-				int transitionNum = Integer.parseInt(transitions[i]);
-				char c = this.sigma[i - 1];
-				this.states[currentStateNum].addTransition(c, this.states[transitionNum]);
+		ArrayList<DFANode> accepting = new ArrayList<>();
+		for(int state = 0; state < numStates; state++) {
+			int row = state * numClasses;
+			for(int symbol = 0; symbol < this.sigma.length; symbol++) {
+				int next = transitions[row + classes.classOf(symbol)];
+				if(next != CompiledDFA.REJECT) {
+					this.states[state].addTransition(this.sigma[symbol], this.states[next]);
+				}
+			}
+			if(table.isAccepting(state)) {
+				this.states[state].setAccepting(true);
+				accepting.add(this.states[state]);
 			}
 		}
 		
-		int initialStateLineNum = 4 + numStates;
-		String initialStateLabel = Reader.tokenize(lines[initialStateLineNum], ":")[0];
-		this.initialState = this.states[Integer.parseInt(initialStateLabel)];
-		
-		int acceptingStatesLineNum = initialStateLineNum + 1;
-		
-		String[] acceptingStates = Reader.tokenize(Reader.tokenize(lines[acceptingStatesLineNum], ":")[0], ",");
-		this.acceptingStates = new DFANode[acceptingStates.length];
-		
-		for(int i = 0; i < acceptingStates.length; i++) {
-			String s = acceptingStates[i];
-			int stateNum = Integer.parseInt(s);
-			this.states[stateNum].setAccepting(true);
-			this.acceptingStates[i] = this.states[stateNum];
-		}
-		
+		this.initialState = this.states[table.getInitialState()];
+		this.acceptingStates = accepting.toArray(new DFANode[accepting.size()]);
 	}
 	
 	public DFA(NFA nfa) {
+		long start = System.nanoTime();
+		MetricsListener metrics = Metrics.get();
 		
 		ArrayList<DFANode> stateAcc = new ArrayList<>();
+		// Every known state, keyed by the canonical set of NFA states it encloses
+		HashMap<StateSet, DFANode> stateIndex = new HashMap<>();
 		
 		// Get sigma from nfa, minus lambda
 		this.sigma = Arrays.copyOfRange(nfa.getSigma(), 0, nfa.getSigma().length - 1);
 		this.initialState = DFANode.fromLambdaClosure(nfa.getInitialState());
+		// Only the representative of each class of symbols is followed
+		SymbolClasses classes = SymbolClasses.of(nfa);
+		DFANode[] classTargets = new DFANode[classes.getNumClasses()];
 		
 		stateAcc.add(this.initialState);
-		boolean stateCreated = true;
-		while(stateCreated) {
-			stateCreated = false;
-			ArrayList<DFANode> computedNodes = new ArrayList<>();
-			for (DFANode dfa : stateAcc) {
-				for(char s : this.sigma) {
-					DFANode computed = dfa.computeTransition(s);
-					
-					// Get all currently known nodes from stateAcc + computedNodes
-					ArrayList<DFANode> currentNodes = new ArrayList<>(stateAcc);
-					currentNodes.addAll(computedNodes);
-					DFANode[] accSnapshot = currentNodes.toArray(new DFANode[currentNodes.size()]);
-					
-					// If the computed state already exists, then replace it
-					// with the existing one (so that every node with a transition
-					// to it references the same one and not a copy)
-					if(currentNodes.contains(computed)) {
-						computed = this.getEquivalentState(computed, accSnapshot);
-					} else {
-						stateCreated = true;
-						computedNodes.add(computed);
-					}
-					dfa.addTransition(s, computed);
+		stateIndex.put(this.initialState.getEnclosedSet(), this.initialState);
+		metrics.subsetDiscovered(this.initialState.getEnclosed().length);
+		
+		// stateAcc doubles as the work queue: every state is expanded exactly once,
+		// in the order it was discovered
+		for(int next = 0; next < stateAcc.size(); next++) {
+			DFANode dfa = stateAcc.get(next);
+			for(int symbolClass = 0; symbolClass < classTargets.length; symbolClass++) {
+				DFANode computed = dfa.computeTransition(this.sigma[classes.representative(symbolClass)]);
+				
+				// If the computed state already exists, then replace it
+				// with the existing one (so that every node with a transition
+				// to it references the same one and not a copy)
+				DFANode existing = stateIndex.putIfAbsent(computed.getEnclosedSet(), computed);
+				if(existing != null) {
+					computed = existing;
+				} else {
+					stateAcc.add(computed);
+					metrics.subsetDiscovered(computed.getEnclosed().length);
 				}
+				classTargets[symbolClass] = computed;
+			}
+			for(int symbol = 0; symbol < this.sigma.length; symbol++) {
+				dfa.addTransition(this.sigma[symbol], classTargets[classes.classOf(symbol)]);
 			}
-			stateAcc.addAll(computedNodes);
 		}
 		
-		this.states = stateAcc.toArray(new DFANode[stateAcc.size()]);
+		this.setStates(stateAcc.toArray(new DFANode[stateAcc.size()]));
+		Metrics.phaseCompleted(Metrics.DETERMINIZE, start);
+	}
+	
+	/**
+	 * Create a DFA from the states found by subset construction, such as by
+	 * a ParallelDeterminizer.
+	 * @param sigma The alphabet, without lambda
+	 * @param states Every state, in the order they were found.  The first
+	 * 		state is the initial state.
+	 */
+	DFA(char[] sigma, DFANode[] states) {
+		this.sigma = sigma;
+		this.initialState = states[0];
+		this.setStates(states);
+	}
+	
+	/**
+	 * Label the states found by subset construction with their index and
+	 * find the accepting states.
+	 */
+	private void setStates(DFANode[] states) {
+		this.states = states;
 		for(int i = 0; i < this.states.length; i++) {
 			this.states[i].setLabel(i + "");
 		}
@@ -109,25 +133,35 @@ public class DFA {
 		return new MinimizedDFA(this);
 	}
 	
+	/**
+	 * Minimize this DFA on several threads.  The result is the same as
+	 * minimize().
+	 * @param parallelism The number of threads, or 1 to minimize sequentially
+	 * @return The minimized DFA
+	 */
+	public MinimizedDFA minimize(int parallelism) {
+		return new MinimizedDFA(this, parallelism);
+	}
+	
+	public CompiledDFA compile() {
+		return new CompiledDFA(this);
+	}
+	
 	public boolean testInput(String input) {
+		return this.matches(input);
+	}
+	
+	@Override
+	public boolean matches(CharSequence input) {
 		DFANode currentState = this.initialState;
-		for(char c : input.toCharArray()) {
-			currentState = currentState.applyTransition(c);
+		for(int i = 0; i < input.length(); i++) {
+			currentState = currentState.applyTransition(input.charAt(i));
 			if(currentState == null)
 				return false;
 		}
 		return currentState.isAccepting();
 	}
 	
-	private DFANode getEquivalentState(DFANode state, DFANode ... existingStates) {
-		for(DFANode d : existingStates) {
-			if (d.equals(state)) {
-				return d;
-			}
-		}
-		return state;
-	}
-	
 	public DFANode[] getStates() { return this.states; }
 	public DFANode[] getAcceptingStates() { return this.acceptingStates; }
 	public DFANode getInitialState() { return this.initialState; } 
@@ -210,18 +244,50 @@ public class DFA {
 		return sb.toString();
 	}
 	
-	public static void main(String[] args) {
+	public static void main(String[] args) throws IOException {
+		CommandLine commandLine = new CommandLine(args, "--save", "--load");
+		args = commandLine.getArguments();
+		
+		// With --timings every phase is measured and summarized at the end
+		MetricsRecorder recorder = null;
+		if(commandLine.hasOption("--timings")) {
+			recorder = new MetricsRecorder();
+			Metrics.set(recorder);
+		}
+		
+		if(commandLine.hasOption("--load")) {
+			if(args.length < 1) {
+				System.out.println("DFA --load requires (1) argument");
+				return;
+			}
+			CompiledDFA loaded = CompiledDFAFormat.read(Paths.get(commandLine.getOption("--load")));
+			String[] testInputs = Reader.readIntoLines(args[0]);
+			
+			System.out.println("The following strings are accepted:");
+			try(BatchMatcher batch = new BatchMatcher(loaded)) {
+				batch.acceptedStrings(testInputs)
+					.forEach(i -> System.out.println(i));
+			}
+			if(recorder != null) {
+				recorder.printSummary(System.out);
+			}
+			return;
+		}
+		
 		if(args.length < 2) {
 			System.out.println("NFA requires (2) arguments");
 			return;
 		}
 		
-		String contents = Reader.readEntireFile(args[0]);
+		DFA dfa = AutomatonParser.readDFA(Paths.get(args[0]));
 		String[] testInputs = Reader.readIntoLines(args[1]);
 		
-		DFA dfa = new DFA(contents);
 		MinimizedDFA mini = dfa.minimize();
 		
+		if(commandLine.hasOption("--save")) {
+			CompiledDFAFormat.write(mini.compile(), Paths.get(commandLine.getOption("--save")));
+		}
+		
 		if(args.length >= 3) {
 			int limit = Integer.parseInt(args[2]);
 			System.out.println("\nDFA:\n");
@@ -236,10 +302,21 @@ public class DFA {
 		}
 		
 		System.out.println("The following strings are accepted:");
-		Arrays.asList(testInputs).stream()
-			.filter(i -> mini.testInput(i))
-			.forEach(i -> System.out.println(i));
+		try(BatchMatcher batch = new BatchMatcher(mini)) {
+			batch.acceptedStrings(testInputs)
+				.forEach(i -> System.out.println(i));
+		}
 		
+		if(commandLine.hasOption("--verify")) {
+			String counterexample = LanguageChecks.equivalenceCounterexample(dfa.compile(), mini.compile());
+			System.out.println(counterexample == null
+					? "The minimized DFA accepts the same language"
+					: "The minimized DFA differs on \"" + counterexample + "\"");
+		}
+		
+		if(recorder != null) {
+			recorder.printSummary(System.out);
+		}
 	}
 	
 	
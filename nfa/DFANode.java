@@ -1,8 +1,11 @@
 package nfa;
-import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.stream.Collectors;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 public class DFANode {
 	
@@ -11,6 +14,7 @@ public class DFANode {
 	private boolean isAccepting;
 	
 	private NFANode[] enclosed;
+	private StateSet enclosedSet;
 	
 	public DFANode() {
 		this.transitions = new HashMap<>();
@@ -21,6 +25,7 @@ public class DFANode {
 		this.transitions = new HashMap<>(toCopy.transitions);
 		this.isAccepting = toCopy.isAccepting;
 		this.enclosed = Arrays.copyOf(toCopy.enclosed, toCopy.enclosed.length);
+		this.enclosedSet = toCopy.enclosedSet;
 	}
 	
 	public DFANode(NFANode ... enclosed) {
@@ -36,14 +41,10 @@ public class DFANode {
 	 * @return A new DFANode
 	 */
 	public static DFANode fromUnion(DFANode ... inits) {
-		ArrayList<NFANode> uniqueEnclosed = new ArrayList<>();
+		LinkedHashSet<NFANode> uniqueEnclosed = new LinkedHashSet<>();
 
 		for(DFANode dfaN : inits) {
-			for(NFANode nfaN : dfaN.getEnclosed()) {
-				if (!uniqueEnclosed.contains(nfaN)) {
-					uniqueEnclosed.add(nfaN);
-				}
-			}
+			uniqueEnclosed.addAll(Arrays.asList(dfaN.getEnclosed()));
 		}
 		return new DFANode(uniqueEnclosed.toArray(new NFANode[uniqueEnclosed.size()]));
 	}
@@ -66,13 +67,26 @@ public class DFANode {
 	 * @return A new DFANode
 	 */
 	public static DFANode fromLambdaClosure(NFANode ... nfas) {
-		DFANode dfaNode = DFANode.fromUnion(
-				Arrays.asList(nfas)
-				.stream()
-				.map(nfa -> DFANode.fromLambdaClosure(nfa))
-				.collect(Collectors.toList())
-				.toArray(new DFANode[0]));
-		return dfaNode;
+		LinkedHashSet<NFANode> closure = new LinkedHashSet<>();
+		DFANode.addLambdaClosures(closure, nfas);
+		return new DFANode(closure.toArray(new NFANode[closure.size()]));
+	}
+	
+	/**
+	 * Add the lambda closures of the specified NFANodes to a set.  Closures are
+	 * read from the table precomputed by the NFA, and a closure shared by several
+	 * nodes (a lambda cycle) is only added once.
+	 * @param closure The set to add to
+	 * @param nfas The NFANodes whose closures will be added
+	 */
+	private static void addLambdaClosures(Set<NFANode> closure, NFANode ... nfas) {
+		Set<NFANode[]> addedClosures = Collections.newSetFromMap(new IdentityHashMap<>());
+		for(NFANode nfa : nfas) {
+			NFANode[] nfaClosure = nfa.getLambdaClosure();
+			if(addedClosures.add(nfaClosure)) {
+				closure.addAll(Arrays.asList(nfaClosure));
+			}
+		}
 	}
 	
 	/**
@@ -100,18 +114,15 @@ public class DFANode {
 	 * @return A new DFANode represented by enclosed NFANodes
 	 */
 	public DFANode computeTransition(char transition) {
-		// q -> transition
-		DFANode fromT = new DFANode(this.computeSingleTransition(transition));
-		// q -> transition -> lambda
-		DFANode fromTL = DFANode.fromLambdaClosure(fromT);
-		// q -> lambda (not used in final union - just for intermediate calculation)
-		DFANode fromL = DFANode.fromLambdaClosure(this);
+		// Every lambda closure contains its own node, so q -> lambda -> transition -> lambda
+		// already includes the nodes of the other three steps
+		// q -> lambda
+		LinkedHashSet<NFANode> fromL = new LinkedHashSet<>();
+		DFANode.addLambdaClosures(fromL, this.enclosed);
 		// q -> lambda -> transition
-		DFANode fromLT = new DFANode(fromL.computeSingleTransition(transition));
+		NFANode[] fromLT = DFANode.computeSingleTransition(fromL, transition);
 		// q -> lambda -> transition -> lambda
-		DFANode fromLTL = DFANode.fromLambdaClosure(fromLT);
-		
-		return DFANode.fromUnion(fromT, fromTL, fromLT, fromLTL);
+		return DFANode.fromLambdaClosure(fromLT);
 	}
 	
 	/**
@@ -122,16 +133,14 @@ public class DFANode {
 	 * @return An array of NFANodes
 	 */
 	public NFANode[] computeSingleTransition(char transition) {
-		ArrayList<NFANode> enclosedNodes = new ArrayList<>();
-		ArrayList<NFANode> candidateNodes = new ArrayList<>();
+		return DFANode.computeSingleTransition(Arrays.asList(this.enclosed), transition);
+	}
+	
+	private static NFANode[] computeSingleTransition(Collection<NFANode> from, char transition) {
+		LinkedHashSet<NFANode> enclosedNodes = new LinkedHashSet<>();
 		
-		for(NFANode n : this.enclosed) {
-			candidateNodes.addAll(Arrays.asList(n.applyTransition(transition)));
-		}
-		for(NFANode c : candidateNodes) {
-			if (!enclosedNodes.contains(c)) {
-				enclosedNodes.add(c);
-			}
+		for(NFANode n : from) {
+			enclosedNodes.addAll(Arrays.asList(n.applyTransition(transition)));
 		}
 		
 		return enclosedNodes.toArray(new NFANode[enclosedNodes.size()]);
@@ -173,7 +182,23 @@ public class DFANode {
 	}
 	
 	public NFANode[] getEnclosed() { return this.enclosed; }
-	public void setEnclosed(NFANode ... nfas) { this.enclosed = nfas; }
+	public void setEnclosed(NFANode ... nfas) { 
+		this.enclosed = nfas;
+		this.enclosedSet = null;
+	}
+	
+	/**
+	 * Get the canonical set of IDs of the NFANodes enclosed by this node.
+	 * Two DFANodes enclosing the same NFANodes have equal sets, so the set
+	 * can be used as a hash key to find an equivalent DFANode.
+	 * @return The StateSet of the enclosed NFANodes
+	 */
+	public StateSet getEnclosedSet() {
+		if(this.enclosedSet == null) {
+			this.enclosedSet = StateSet.of(this.enclosed);
+		}
+		return this.enclosedSet;
+	}
 	
 	/**
 	 * Check DFANode equality.  Two DFANodes are equivalent if all of their
@@ -0,0 +1,211 @@
+package nfa;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * HopcroftMinimizer runs Hopcroft's partition refinement over a DFA stored as
+ * a flat transition table.  The partition is kept in refinable-partition
+ * arrays: the states are stored in one array, grouped by block, with the start
+ * and end of every block and the block of every state.  Splitting a block only
+ * moves states within its range.  Predecessors are found through an inverse
+ * transition index, so every splitter costs time proportional to the number
+ * of transitions into it, for O(n * k * log n) overall.
+ * @author mjoer
+ */
+public class HopcroftMinimizer {
+
+	private HopcroftMinimizer() {}
+
+	/**
+	 * Compute the coarsest partition of the states which respects the initial
+	 * classes and the transitions.  Every transition must target a valid state.
+	 * Blocks are numbered in order of their lowest state, so the result does not
+	 * depend on the order in which splits happened.
+	 * @param transitions The transition table, indexed by (state * numSymbols + symbol)
+	 * @param numStates The number of states
+	 * @param numSymbols The number of symbols
+	 * @param initialClasses The initial class of every state, for example 1 for
+	 * 		accepting and 0 for non-accepting states
+	 * @return The block of every state
+	 */
+	public static int[] minimize(int[] transitions, int numStates, int numSymbols, int[] initialClasses) {
+		int[] blockOf = new int[numStates];
+		int numBlocks = HopcroftMinimizer.numberClasses(initialClasses, blockOf);
+		int initialBlocks = numBlocks;
+		if(numStates == 0)
+			return blockOf;
+
+		// Refinable partition: elements holds the states grouped by block and
+		// location is the index of every state in elements
+		int[] elements = new int[numStates];
+		int[] location = new int[numStates];
+		int[] blockStart = new int[numStates + 1];
+		int[] blockEnd = new int[numStates];
+		int[] marked = new int[numStates];
+
+		for(int state = 0; state < numStates; state++) {
+			blockStart[blockOf[state] + 1]++;
+		}
+		for(int b = 0; b < numBlocks; b++) {
+			blockStart[b + 1] += blockStart[b];
+			blockEnd[b] = blockStart[b];
+		}
+		for(int state = 0; state < numStates; state++) {
+			int b = blockOf[state];
+			elements[blockEnd[b]] = state;
+			location[state] = blockEnd[b]++;
+		}
+
+		// Inverse transitions: the predecessors of q on symbol a are
+		// predecessors[predecessorStart[a * (numStates + 1) + q] ...]
+		int[] predecessorStart = new int[numSymbols * (numStates + 1) + 1];
+		int[] predecessors = new int[numStates * numSymbols];
+		for(int state = 0; state < numStates; state++) {
+			for(int a = 0; a < numSymbols; a++) {
+				predecessorStart[a * (numStates + 1) + transitions[state * numSymbols + a] + 1]++;
+			}
+		}
+		for(int i = 0; i < predecessorStart.length - 1; i++) {
+			predecessorStart[i + 1] += predecessorStart[i];
+		}
+		int[] fill = new int[predecessorStart.length];
+		System.arraycopy(predecessorStart, 0, fill, 0, fill.length);
+		for(int state = 0; state < numStates; state++) {
+			for(int a = 0; a < numSymbols; a++) {
+				predecessors[fill[a * (numStates + 1) + transitions[state * numSymbols + a]]++] = state;
+			}
+		}
+
+		// Every initial class but the largest starts out as a splitter
+		int[] worklist = new int[numStates];
+		int worklistSize = 0;
+		int largest = 0;
+		for(int b = 1; b < numBlocks; b++) {
+			if(blockEnd[b] - blockStart[b] > blockEnd[largest] - blockStart[largest])
+				largest = b;
+		}
+		for(int b = 0; b < numBlocks; b++) {
+			if(b != largest) {
+				worklist[worklistSize++] = b;
+			}
+		}
+
+		int[] splitter = new int[numStates];
+		int[] touched = new int[numStates];
+		while(worklistSize > 0) {
+			int chosen = worklist[--worklistSize];
+
+			// Copy the splitter, since it may be split while it is being used
+			int splitterSize = blockEnd[chosen] - blockStart[chosen];
+			System.arraycopy(elements, blockStart[chosen], splitter, 0, splitterSize);
+
+			for(int a = 0; a < numSymbols; a++) {
+				// Mark every state whose transition on a is in the splitter by moving
+				// it to the front of its block
+				int numTouched = 0;
+				for(int i = 0; i < splitterSize; i++) {
+					int target = splitter[i];
+					int end = predecessorStart[a * (numStates + 1) + target + 1];
+					for(int p = predecessorStart[a * (numStates + 1) + target]; p < end; p++) {
+						int state = predecessors[p];
+						int b = blockOf[state];
+						int firstUnmarked = blockStart[b] + marked[b];
+						if(location[state] < firstUnmarked)
+							continue;
+						if(marked[b] == 0)
+							touched[numTouched++] = b;
+						int swapped = elements[firstUnmarked];
+						elements[location[state]] = swapped;
+						location[swapped] = location[state];
+						elements[firstUnmarked] = state;
+						location[state] = firstUnmarked;
+						marked[b]++;
+					}
+				}
+
+				// Split every block that was only partly marked.  The smaller half
+				// becomes the new block, and it is always added to the worklist:
+				// if the old block was waiting, both halves now are, and otherwise
+				// the smaller half is the one Hopcroft's algorithm adds.
+				for(int t = 0; t < numTouched; t++) {
+					int b = touched[t];
+					int markedCount = marked[b];
+					marked[b] = 0;
+					int size = blockEnd[b] - blockStart[b];
+					if(markedCount == size)
+						continue;
+
+					int newBlock = numBlocks++;
+					if(markedCount <= size - markedCount) {
+						blockStart[newBlock] = blockStart[b];
+						blockEnd[newBlock] = blockStart[b] + markedCount;
+						blockStart[b] = blockEnd[newBlock];
+					} else {
+						blockStart[newBlock] = blockStart[b] + markedCount;
+						blockEnd[newBlock] = blockEnd[b];
+						blockEnd[b] = blockStart[newBlock];
+					}
+					for(int i = blockStart[newBlock]; i < blockEnd[newBlock]; i++) {
+						blockOf[elements[i]] = newBlock;
+					}
+					worklist[worklistSize++] = newBlock;
+				}
+			}
+		}
+
+		Metrics.get().blocksSplit(numBlocks - initialBlocks);
+		return HopcroftMinimizer.renumberByLowestState(blockOf, numBlocks);
+	}
+
+	/**
+	 * Number the distinct values of classes densely, in order of first appearance.
+	 * @param classes The class of every state
+	 * @param numbered Filled in with the dense number of every state's class
+	 * @return The number of distinct classes
+	 */
+	static int numberClasses(int[] classes, int[] numbered) {
+		HashMap<Integer, Integer> numbers = new HashMap<>();
+		for(int state = 0; state < classes.length; state++) {
+			Integer number = numbers.get(classes[state]);
+			if(number == null) {
+				number = numbers.size();
+				numbers.put(classes[state], number);
+			}
+			numbered[state] = number;
+		}
+		return numbers.size();
+	}
+
+	/**
+	 * Renumber blocks in order of the lowest state they contain.
+	 * @param blockOf The block of every state, modified in place
+	 * @param numBlocks The number of blocks
+	 * @return blockOf
+	 */
+	static int[] renumberByLowestState(int[] blockOf, int numBlocks) {
+		int[] newNumber = new int[numBlocks];
+		Arrays.fill(newNumber, -1);
+		int next = 0;
+		for(int state = 0; state < blockOf.length; state++) {
+			int b = blockOf[state];
+			if(newNumber[b] == -1)
+				newNumber[b] = next++;
+			blockOf[state] = newNumber[b];
+		}
+		return blockOf;
+	}
+
+	/**
+	 * Count the blocks in a partition produced by minimize.
+	 * @param blockOf The block of every state
+	 * @return The number of blocks
+	 */
+	public static int countBlocks(int[] blockOf) {
+		int max = -1;
+		for(int b : blockOf) {
+			max = Math.max(max, b);
+		}
+		return max + 1;
+	}
+
+}
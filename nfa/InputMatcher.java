@@ -0,0 +1,18 @@
+package nfa;
+
+/**
+ * An InputMatcher decides whether an input string is in the language of an
+ * automaton.  DFA, MinimizedDFA, CompiledDFA and BitParallelNFA are all
+ * InputMatchers, so callers can swap one matching engine for another.
+ * @author mjoer
+ */
+public interface InputMatcher {
+	
+	/**
+	 * Test an input against the automaton.
+	 * @param input The string to test
+	 * @return True if the input is accepted, false otherwise
+	 */
+	boolean matches(CharSequence input);
+	
+}
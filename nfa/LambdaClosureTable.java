@@ -0,0 +1,172 @@
+package nfa;
+import java.util.Arrays;
+
+/**
+ * A LambdaClosureTable holds the lambda closure of every state in an NFA.
+ * The closures are computed once by condensing the lambda transitions into
+ * their strongly connected components (Tarjan's algorithm).  Every node in a
+ * component has the same closure, so the closure is stored once per component
+ * and shared between its members.
+ * @author mjoer
+ */
+public class LambdaClosureTable {
+
+	private static final char LAMBDA = '^';
+
+	private final int[] componentOf;
+	private final StateSet[] closures;
+	// Set once a lambda transition of the NFA changes after the table is built
+	private volatile boolean stale;
+
+	/**
+	 * Compute the lambda closures of the specified states.  The ID of every
+	 * node must be its index in the states array.
+	 * @param states All of the states of an NFA
+	 */
+	public LambdaClosureTable(NFANode[] states) {
+		int[][] lambdaEdges = new int[states.length][];
+		for(int i = 0; i < states.length; i++) {
+			NFANode[] targets = states[i].applyTransition(LAMBDA);
+			lambdaEdges[i] = new int[targets.length];
+			for(int t = 0; t < targets.length; t++) {
+				lambdaEdges[i][t] = targets[t].getId();
+			}
+		}
+
+		this.componentOf = new int[states.length];
+		int numComponents = this.findComponents(lambdaEdges);
+		this.closures = new StateSet[numComponents];
+
+		// Group the states by component
+		int[] memberStart = new int[numComponents + 1];
+		for(int c : this.componentOf) {
+			memberStart[c + 1]++;
+		}
+		for(int c = 0; c < numComponents; c++) {
+			memberStart[c + 1] += memberStart[c];
+		}
+		int[] members = new int[states.length];
+		int[] fill = Arrays.copyOf(memberStart, numComponents);
+		for(int s = 0; s < states.length; s++) {
+			members[fill[this.componentOf[s]]++] = s;
+		}
+
+		// Tarjan numbers components in reverse topological order, so every component
+		// reachable from c has a smaller number and its closure is already known
+		int[] seen = new int[states.length];
+		Arrays.fill(seen, -1);
+		int[] acc = new int[states.length];
+		for(int c = 0; c < numComponents; c++) {
+			int size = 0;
+			for(int m = memberStart[c]; m < memberStart[c + 1]; m++) {
+				int state = members[m];
+				if(seen[state] != c) {
+					seen[state] = c;
+					acc[size++] = state;
+				}
+			}
+			for(int m = memberStart[c]; m < memberStart[c + 1]; m++) {
+				for(int target : lambdaEdges[members[m]]) {
+					int targetComponent = this.componentOf[target];
+					if(targetComponent == c)
+						continue;
+					StateSet reachable = this.closures[targetComponent];
+					for(int i = 0; i < reachable.size(); i++) {
+						int state = reachable.get(i);
+						if(seen[state] != c) {
+							seen[state] = c;
+							acc[size++] = state;
+						}
+					}
+				}
+			}
+			this.closures[c] = StateSet.of(Arrays.copyOf(acc, size));
+		}
+	}
+
+	/**
+	 * Find the strongly connected components of the lambda transitions with an
+	 * iterative version of Tarjan's algorithm, filling in componentOf.
+	 * @param edges The lambda transitions of each state
+	 * @return The number of components found
+	 */
+	private int findComponents(int[][] edges) {
+		int n = edges.length;
+		int[] index = new int[n];
+		int[] lowLink = new int[n];
+		boolean[] onStack = new boolean[n];
+		int[] stack = new int[n];
+		int[] callStack = new int[n];
+		int[] edgePosition = new int[n];
+		Arrays.fill(index, -1);
+
+		int nextIndex = 0;
+		int stackSize = 0;
+		int numComponents = 0;
+
+		for(int root = 0; root < n; root++) {
+			if(index[root] != -1)
+				continue;
+
+			int depth = 0;
+			callStack[depth] = root;
+			edgePosition[root] = 0;
+			index[root] = lowLink[root] = nextIndex++;
+			stack[stackSize++] = root;
+			onStack[root] = true;
+
+			while(depth >= 0) {
+				int v = callStack[depth];
+				if(edgePosition[v] < edges[v].length) {
+					int w = edges[v][edgePosition[v]++];
+					if(index[w] == -1) {
+						index[w] = lowLink[w] = nextIndex++;
+						stack[stackSize++] = w;
+						onStack[w] = true;
+						edgePosition[w] = 0;
+						callStack[++depth] = w;
+					} else if(onStack[w]) {
+						lowLink[v] = Math.min(lowLink[v], index[w]);
+					}
+				} else {
+					if(lowLink[v] == index[v]) {
+						int w;
+						do {
+							w = stack[--stackSize];
+							onStack[w] = false;
+							this.componentOf[w] = numComponents;
+						} while(w != v);
+						numComponents++;
+					}
+					depth--;
+					if(depth >= 0) {
+						int parent = callStack[depth];
+						lowLink[parent] = Math.min(lowLink[parent], lowLink[v]);
+					}
+				}
+			}
+		}
+		return numComponents;
+	}
+
+	/**
+	 * Get the lambda closure of a state.  States in the same component
+	 * share the same StateSet instance.
+	 * @param state The ID of the state
+	 * @return The IDs of every state reachable from state by lambda transitions
+	 */
+	public StateSet getClosure(int state) {
+		return this.closures[this.componentOf[state]];
+	}
+
+	/**
+	 * @return True if a lambda transition has changed since the table was
+	 * 		built, so its closures may be wrong
+	 */
+	public boolean isStale() { return this.stale; }
+	void markStale() { this.stale = true; }
+
+	public int getComponent(int state) { return this.componentOf[state]; }
+	public int getNumComponents() { return this.closures.length; }
+
+}
@@ -0,0 +1,97 @@
+package nfa;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class LambdaClosureTableTest {
+
+	private static final String CYCLE =
+			"3\n" +
+			"a \n" +
+			"0: {} {1} \n" +
+			"1: {2} {0} \n" +
+			"2: {} {} \n" +
+			"0\n" +
+			"{2}\n";
+
+	@Test
+	public void lambdaClosuresAreShared() {
+		NFA nfa = new NFA(CYCLE);
+		LambdaClosureTable closures = nfa.getLambdaClosures();
+
+		assertSame(closures.getClosure(0), closures.getClosure(1));
+		assertSame(nfa.getState(0).getLambdaClosure(), nfa.getState(1).getLambdaClosure());
+		assertArrayEquals(new int[] { 0, 1 }, closures.getClosure(0).toArray());
+		assertArrayEquals(new int[] { 2 }, closures.getClosure(2).toArray());
+		assertEquals(2, closures.getNumComponents());
+		assertTrue(new DFA(nfa).testInput("a"));
+		assertFalse(new DFA(nfa).testInput("aa"));
+	}
+
+	@Test
+	public void chainsCloseOverEveryLaterState() {
+		// 0 -> 1 -> 2 -> 3 by lambda, with 3 accepting
+		NFA nfa = new NFA(LambdaClosureTableTest.lambdaChain(4, false));
+		LambdaClosureTable closures = nfa.getLambdaClosures();
+
+		assertEquals(4, closures.getNumComponents());
+		for(int state = 0; state < 4; state++) {
+			int[] expected = new int[4 - state];
+			for(int i = 0; i < expected.length; i++) {
+				expected[i] = state + i;
+			}
+			assertArrayEquals(expected, closures.getClosure(state).toArray());
+		}
+		assertTrue(new DFA(nfa).testInput(""));
+	}
+
+	@Test
+	public void deepLambdaCyclesDoNotOverflowTheStack() {
+		// One component, found at the bottom of a depth-first search as deep
+		// as the NFA is large
+		int numStates = 100000;
+		NFA nfa = new NFA(LambdaClosureTableTest.lambdaChain(numStates, true));
+		LambdaClosureTable closures = nfa.getLambdaClosures();
+
+		assertEquals(1, closures.getNumComponents());
+		assertEquals(numStates, closures.getClosure(0).size());
+		assertSame(closures.getClosure(0), closures.getClosure(numStates - 1));
+	}
+
+	@Test
+	public void lambdaTransitionsAddedLaterAreClosedOver() {
+		NFA nfa = new NFA(
+				"3\n" +
+				"a \n" +
+				"0: {} {1} \n" +
+				"1: {} {} \n" +
+				"2: {} {} \n" +
+				"0\n" +
+				"{2}\n");
+		assertEquals(2, nfa.getState(0).getLambdaClosure().length);
+		assertFalse(new DFA(nfa).testInput(""));
+
+		// The closure of 0 contains 1, so it changes too
+		nfa.getState(1).addTransition('^', nfa.getState(2));
+		assertEquals(3, nfa.getState(0).getLambdaClosure().length);
+		assertTrue(nfa.getLambdaClosures().getClosure(0).contains(2));
+		assertTrue(new DFA(nfa).testInput(""));
+		assertTrue(new MinimizedDFA(nfa).matches(""));
+	}
+
+	/**
+	 * @return An NFA file of states linked in a row by lambda transitions,
+	 * 		with the last one accepting
+	 */
+	private static String lambdaChain(int numStates, boolean cycle) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(numStates).append("\na \n");
+		for(int state = 0; state < numStates; state++) {
+			int next = state + 1 < numStates ? state + 1 : cycle ? 0 : -1;
+			sb.append(state).append(": {} {").append(next < 0 ? "" : String.valueOf(next)).append("} \n");
+		}
+		sb.append("0\n{").append(numStates - 1).append("}\n");
+		return sb.toString();
+	}
+
+}
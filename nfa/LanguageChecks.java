@@ -0,0 +1,281 @@
+package nfa;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * LanguageChecks compares the languages of automata without building more of
+ * them than needed.
+ * <p>
+ * Equivalence of DFAs uses Hopcroft and Karp's algorithm: the states of both
+ * automata are merged in a union-find structure, starting from the two
+ * initial states, and a pair of states is only followed if the two are not
+ * already known to be equivalent.  At most |A| + |B| merges can happen, so
+ * the check takes nearly linear time.  Only when the automata differ is a
+ * ProductDFA searched for a shortest counterexample.
+ * <p>
+ * Inclusion of NFAs uses antichains.  The search explores pairs of a state of
+ * A and the set of states B could be in after the same input, so B is
+ * determinized on the fly, and a pair is dropped when another pair with the
+ * same A state and a subset of its B states has been seen, since whatever the
+ * larger set rejects the smaller one rejects too.
+ * @author mjoer
+ */
+public class LanguageChecks {
+
+	private LanguageChecks() {}
+
+	/**
+	 * Test whether two DFAs accept the same language.  A character outside a
+	 * DFA's sigma is rejected by that DFA.
+	 * @param a The first DFA
+	 * @param b The second DFA
+	 * @return True if they accept the same strings
+	 */
+	public static boolean areEquivalent(CompiledDFA a, CompiledDFA b) {
+		char[] sigma = LanguageChecks.unionOfSigmas(a, b);
+		// States 0 .. |A| - 1 are A's, then A's reject sink, then B's, then
+		// B's reject sink
+		int sinkA = a.getNumStates();
+		int offsetB = sinkA + 1;
+		int sinkB = offsetB + b.getNumStates();
+		int[] parent = new int[sinkB + 1];
+		byte[] rank = new byte[parent.length];
+		for(int state = 0; state < parent.length; state++) {
+			parent[state] = state;
+		}
+
+		int[] queue = new int[64];
+		int tail = 0;
+		int p0 = a.getInitialState();
+		int q0 = offsetB + b.getInitialState();
+		if(!LanguageChecks.sameAcceptance(a, b, p0, q0, sinkA, offsetB, sinkB))
+			return false;
+		LanguageChecks.union(parent, rank, p0, q0);
+		queue[tail++] = p0;
+		queue[tail++] = q0;
+
+		for(int head = 0; head < tail; head += 2) {
+			int p = queue[head];
+			int q = queue[head + 1];
+			for(char c : sigma) {
+				int nextP = p == sinkA ? sinkA : LanguageChecks.orSink(a.step(p, c), 0, sinkA);
+				int nextQ = q == sinkB ? sinkB : LanguageChecks.orSink(b.step(q - offsetB, c), offsetB, sinkB);
+				if(LanguageChecks.find(parent, nextP) == LanguageChecks.find(parent, nextQ))
+					continue;
+				if(!LanguageChecks.sameAcceptance(a, b, nextP, nextQ, sinkA, offsetB, sinkB))
+					return false;
+				LanguageChecks.union(parent, rank, nextP, nextQ);
+				if(tail + 2 > queue.length) {
+					queue = Arrays.copyOf(queue, queue.length * 2);
+				}
+				queue[tail++] = nextP;
+				queue[tail++] = nextQ;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Find a shortest string accepted by exactly one of two DFAs.
+	 * @param a The first DFA
+	 * @param b The second DFA
+	 * @return A shortest counterexample, or null if the DFAs are equivalent
+	 */
+	public static String equivalenceCounterexample(CompiledDFA a, CompiledDFA b) {
+		if(LanguageChecks.areEquivalent(a, b))
+			return null;
+		return ProductDFA.symmetricDifference(a, b).shortestAccepted();
+	}
+
+	/**
+	 * Find a shortest string accepted by one DFA but not another.
+	 * @param a The DFA whose language should be included
+	 * @param b The DFA whose language should include it
+	 * @return A shortest string accepted by a but not b, or null if there is none
+	 */
+	public static String inclusionCounterexample(CompiledDFA a, CompiledDFA b) {
+		return ProductDFA.difference(a, b).shortestAccepted();
+	}
+
+	/**
+	 * Test whether every string one NFA accepts is accepted by another,
+	 * without determinizing either.
+	 * @param a The NFA whose language should be included
+	 * @param b The NFA whose language should include it
+	 * @return True if L(a) is a subset of L(b)
+	 */
+	public static boolean isIncluded(NFA a, NFA b) {
+		return LanguageChecks.inclusionCounterexample(a, b) == null;
+	}
+
+	/**
+	 * Find a shortest string accepted by one NFA but not another, without
+	 * determinizing either.
+	 * @param a The NFA whose language should be included
+	 * @param b The NFA whose language should include it
+	 * @return A shortest string accepted by a but not b, or null if there is none
+	 */
+	public static String inclusionCounterexample(NFA a, NFA b) {
+		// Sigma of a, minus lambda.  A symbol b doesn't have takes b to the
+		// empty set.
+		char[] sigma = Arrays.copyOfRange(a.getSigma(), 0, a.getSigma().length - 1);
+		LambdaClosureTable closuresA = a.getLambdaClosures();
+		LambdaClosureTable closuresB = b.getLambdaClosures();
+		boolean[] acceptingB = new boolean[b.getNumStates()];
+		for(int q = 0; q < acceptingB.length; q++) {
+			acceptingB[q] = b.getState(q).isAccepting();
+		}
+		boolean[] inSigmaB = new boolean[sigma.length];
+		for(int symbol = 0; symbol < sigma.length; symbol++) {
+			for(int i = 0; i < b.getSigma().length - 1; i++) {
+				inSigmaB[symbol] |= b.getSigma()[i] == sigma[symbol];
+			}
+		}
+
+		// The explored pairs, with the pair and symbol each was reached from
+		List<Integer> statesA = new ArrayList<>();
+		List<StateSet> setsB = new ArrayList<>();
+		List<Integer> parents = new ArrayList<>();
+		List<Character> symbols = new ArrayList<>();
+		// The antichain: for every state of a, the minimal sets of b seen with it
+		List<List<StateSet>> antichain = new ArrayList<>();
+		for(int p = 0; p < a.getNumStates(); p++) {
+			antichain.add(new ArrayList<>());
+		}
+
+		StateSet initialB = closuresB.getClosure(b.getInitialState().getId());
+		StateSet initialA = closuresA.getClosure(a.getInitialState().getId());
+		for(int i = 0; i < initialA.size(); i++) {
+			LanguageChecks.visit(initialA.get(i), initialB, -1, '\0', statesA, setsB, parents, symbols, antichain);
+		}
+
+		for(int pair = 0; pair < statesA.size(); pair++) {
+			int p = statesA.get(pair);
+			StateSet setB = setsB.get(pair);
+			if(a.getState(p).isAccepting() && !LanguageChecks.anyAccepting(setB, acceptingB))
+				return LanguageChecks.inputTo(pair, parents, symbols);
+
+			for(int symbol = 0; symbol < sigma.length; symbol++) {
+				NFANode[] movesA = a.getState(p).applyTransition(sigma[symbol]);
+				if(movesA.length == 0)
+					continue;
+				StateSet nextB = inSigmaB[symbol] ? LanguageChecks.post(b, closuresB, setB, sigma[symbol]) : StateSet.of(new int[0]);
+				for(NFANode target : movesA) {
+					StateSet closure = closuresA.getClosure(target.getId());
+					for(int i = 0; i < closure.size(); i++) {
+						LanguageChecks.visit(closure.get(i), nextB, pair, sigma[symbol], statesA, setsB, parents, symbols, antichain);
+					}
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Add the pair (p, setB) unless the antichain already has a subset of
+	 * setB for p, and drop any supersets of setB from the antichain.
+	 */
+	private static void visit(int p, StateSet setB, int parent, char symbol, List<Integer> statesA,
+			List<StateSet> setsB, List<Integer> parents, List<Character> symbols, List<List<StateSet>> antichain) {
+		List<StateSet> minimal = antichain.get(p);
+		for(StateSet seen : minimal) {
+			if(setB.containsAll(seen))
+				return;
+		}
+		minimal.removeIf(seen -> seen.containsAll(setB));
+		minimal.add(setB);
+		statesA.add(p);
+		setsB.add(setB);
+		parents.add(parent);
+		symbols.add(symbol);
+	}
+
+	/**
+	 * @return The lambda closure of the states reached from any state of a
+	 * 		set on a symbol
+	 */
+	private static StateSet post(NFA nfa, LambdaClosureTable closures, StateSet from, char symbol) {
+		int[] ids = new int[16];
+		int size = 0;
+		for(int i = 0; i < from.size(); i++) {
+			for(NFANode target : nfa.getState(from.get(i)).applyTransition(symbol)) {
+				StateSet closure = closures.getClosure(target.getId());
+				if(size + closure.size() > ids.length) {
+					ids = Arrays.copyOf(ids, Math.max(ids.length * 2, size + closure.size()));
+				}
+				for(int c = 0; c < closure.size(); c++) {
+					ids[size++] = closure.get(c);
+				}
+			}
+		}
+		return StateSet.of(Arrays.copyOf(ids, size));
+	}
+
+	private static boolean anyAccepting(StateSet set, boolean[] accepting) {
+		for(int i = 0; i < set.size(); i++) {
+			if(accepting[set.get(i)])
+				return true;
+		}
+		return false;
+	}
+
+	private static String inputTo(int pair, List<Integer> parents, List<Character> symbols) {
+		StringBuilder input = new StringBuilder();
+		for(; parents.get(pair) >= 0; pair = parents.get(pair)) {
+			input.append(symbols.get(pair));
+		}
+		return input.reverse().toString();
+	}
+
+	private static char[] unionOfSigmas(CompiledDFA a, CompiledDFA b) {
+		StringBuilder union = new StringBuilder(new String(a.getSigma()));
+		for(char c : b.getSigma()) {
+			if(union.indexOf(String.valueOf(c)) < 0) {
+				union.append(c);
+			}
+		}
+		return union.toString().toCharArray();
+	}
+
+	private static int orSink(int state, int offset, int sink) {
+		return state == CompiledDFA.REJECT ? sink : offset + state;
+	}
+
+	private static boolean sameAcceptance(CompiledDFA a, CompiledDFA b, int p, int q, int sinkA, int offsetB, int sinkB) {
+		boolean acceptsA = p != sinkA && a.isAccepting(p);
+		boolean acceptsB = q != sinkB && b.isAccepting(q - offsetB);
+		return acceptsA == acceptsB;
+	}
+
+	/**
+	 * Find the root of a state's set, halving the path on the way.
+	 */
+	private static int find(int[] parent, int state) {
+		while(parent[state] != state) {
+			parent[state] = parent[parent[state]];
+			state = parent[state];
+		}
+		return state;
+	}
+
+	/**
+	 * Merge the sets of two states, hanging the shallower tree under the
+	 * deeper one.
+	 */
+	private static void union(int[] parent, byte[] rank, int p, int q) {
+		int rootP = LanguageChecks.find(parent, p);
+		int rootQ = LanguageChecks.find(parent, q);
+		if(rootP == rootQ)
+			return;
+		if(rank[rootP] < rank[rootQ]) {
+			parent[rootP] = rootQ;
+		} else {
+			parent[rootQ] = rootP;
+			if(rank[rootP] == rank[rootQ]) {
+				rank[rootP]++;
+			}
+		}
+	}
+
+}
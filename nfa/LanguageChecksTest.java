@@ -0,0 +1,90 @@
+package nfa;
+
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class LanguageChecksTest {
+
+	private static final String CONTAINS_AA =
+			"3\n" +
+			"a b \n" +
+			"0: {0,1} {0} {} \n" +
+			"1: {2} {} {} \n" +
+			"2: {2} {2} {} \n" +
+			"0\n" +
+			"{2}\n";
+
+	private static final String CONTAINS_A =
+			"2\n" +
+			"a b \n" +
+			"0: {0,1} {0} {} \n" +
+			"1: {1} {1} {} \n" +
+			"0\n" +
+			"{1}\n";
+
+	@Test
+	public void minimizationPreservesTheLanguage() {
+		for(long seed = 0; seed < 10; seed++) {
+			DFA dfa = new DFA(AutomatonGenerator.randomDFA(100, 3, 0.3, seed));
+			MinimizedDFA minimized = dfa.minimize();
+
+			assertTrue(LanguageChecks.areEquivalent(dfa.compile(), minimized.compile()));
+			assertNull(LanguageChecks.equivalenceCounterexample(dfa.compile(), minimized.compile()));
+		}
+	}
+
+	@Test
+	public void findsShortestEquivalenceCounterexample() {
+		CompiledDFA a = new MinimizedDFA(new NFA(CONTAINS_AA)).compile();
+		CompiledDFA b = new MinimizedDFA(new NFA(CONTAINS_A)).compile();
+
+		assertFalse(LanguageChecks.areEquivalent(a, b));
+		assertEquals("a", LanguageChecks.equivalenceCounterexample(a, b));
+		assertNull(LanguageChecks.inclusionCounterexample(a, b));
+		assertEquals("a", LanguageChecks.inclusionCounterexample(b, a));
+	}
+
+	@Test
+	public void equivalenceAgreesWithProductSearch() {
+		for(long seed = 0; seed < 20; seed++) {
+			// Tiny DFAs over one symbol are often equivalent
+			CompiledDFA a = new DFA(AutomatonGenerator.randomDFA(3, 1, 0.5, seed)).compile();
+			CompiledDFA b = new DFA(AutomatonGenerator.randomDFA(3, 1, 0.5, seed + 1000)).compile();
+			String counterexample = ProductDFA.symmetricDifference(a, b).shortestAccepted();
+
+			assertEquals(counterexample == null, LanguageChecks.areEquivalent(a, b));
+			assertEquals(counterexample, LanguageChecks.equivalenceCounterexample(a, b));
+		}
+	}
+
+	@Test
+	public void nfaInclusion() {
+		NFA containsAA = new NFA(CONTAINS_AA);
+		NFA containsA = new NFA(CONTAINS_A);
+
+		assertTrue(LanguageChecks.isIncluded(containsAA, containsA));
+		assertEquals("a", LanguageChecks.inclusionCounterexample(containsA, containsAA));
+		assertTrue(LanguageChecks.isIncluded(containsA, containsA));
+	}
+
+	@Test
+	public void nfaInclusionAgreesWithDeterminizedCheck() {
+		for(long seed = 0; seed < 20; seed++) {
+			NFA a = new NFA(AutomatonGenerator.randomNFA(6, 2, 0.3, 0.3, 0.2, seed));
+			NFA b = new NFA(AutomatonGenerator.randomNFA(6, 2, 0.3, 0.3, 0.2, seed + 1000));
+			String expected = LanguageChecks.inclusionCounterexample(
+					new MinimizedDFA(a).compile(), new MinimizedDFA(b).compile());
+			String found = LanguageChecks.inclusionCounterexample(a, b);
+
+			assertEquals(expected == null, found == null);
+			if(found != null) {
+				assertEquals(expected.length(), found.length());
+				assertTrue(new DFA(a).testInput(found));
+				assertFalse(new DFA(b).testInput(found));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,134 @@
+package nfa;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * A LazyDFA determinizes an NFA on demand while inputs are being tested.
+ * DFA states and their transitions are only computed when an input reaches
+ * them, using the same DFANode.computeTransition as DFA(NFA), so the answers
+ * are the same as the eager DFA.  Computed states are cached in a table of
+ * bounded size; when the table is full it is flushed and rebuilt from the
+ * states that inputs reach afterwards.
+ * A LazyDFA keeps mutable state, so it should not be shared between threads.
+ * @author mjoer
+ */
+public class LazyDFA implements InputMatcher {
+
+	private final char[] sigma;
+	private final int[] symbolIndex;
+	private final int maxStates;
+	private final HashMap<StateSet, CachedState> cache;
+	private final CachedState initialState;
+
+	private long hits;
+	private long misses;
+	private long flushes;
+
+	/**
+	 * A DFA state along with the transitions that have been computed from it.
+	 * A null transition has not been computed yet.
+	 */
+	private static class CachedState {
+		private final DFANode node;
+		private final CachedState[] next;
+		private final boolean isAccepting;
+
+		private CachedState(DFANode node, int sigmaLength) {
+			this.node = node;
+			this.next = new CachedState[sigmaLength];
+			this.isAccepting = node.computeIsAccepting();
+		}
+	}
+
+	/**
+	 * Create a lazy matcher for an NFA.
+	 * @param nfa The NFA to match against
+	 * @param maxStates The most DFA states to cache at once (at least 3)
+	 */
+	public LazyDFA(NFA nfa, int maxStates) {
+		if(maxStates < 3)
+			throw new IllegalArgumentException("LazyDFA needs room for at least 3 states, got " + maxStates);
+
+		// Get sigma from nfa, minus lambda
+		this.sigma = Arrays.copyOfRange(nfa.getSigma(), 0, nfa.getSigma().length - 1);
+		this.symbolIndex = CompiledDFA.buildSymbolIndex(this.sigma);
+		this.maxStates = maxStates;
+		this.cache = new HashMap<>();
+
+		this.initialState = new CachedState(DFANode.fromLambdaClosure(nfa.getInitialState()), this.sigma.length);
+		this.cache.put(this.initialState.node.getEnclosedSet(), this.initialState);
+	}
+
+	@Override
+	public boolean matches(CharSequence input) {
+		CachedState currentState = this.initialState;
+		for(int i = 0; i < input.length(); i++) {
+			char c = input.charAt(i);
+			if(c >= this.symbolIndex.length || this.symbolIndex[c] == CompiledDFA.REJECT)
+				return false;
+			currentState = this.step(currentState, this.symbolIndex[c]);
+		}
+		return currentState.isAccepting;
+	}
+
+	/**
+	 * Follow a transition, computing and caching the target state first if needed.
+	 * @param from The current state
+	 * @param symbol The index in sigma of the input character
+	 * @return The next state
+	 */
+	private CachedState step(CachedState from, int symbol) {
+		CachedState next = from.next[symbol];
+		if(next != null) {
+			this.hits++;
+			return next;
+		}
+
+		this.misses++;
+		DFANode computed = from.node.computeTransition(this.sigma[symbol]);
+		next = this.cache.get(computed.getEnclosedSet());
+		if(next == null) {
+			if(this.cache.size() >= this.maxStates) {
+				this.flush(from);
+			}
+			next = new CachedState(computed, this.sigma.length);
+			this.cache.put(computed.getEnclosedSet(), next);
+		}
+		from.next[symbol] = next;
+		return next;
+	}
+
+	/**
+	 * Drop every cached state and transition except the initial state and
+	 * the state currently being matched from.
+	 * @param current The state the matcher is in
+	 */
+	private void flush(CachedState current) {
+		for(CachedState state : this.cache.values()) {
+			Arrays.fill(state.next, null);
+		}
+		Arrays.fill(current.next, null);
+		this.cache.clear();
+		this.cache.put(this.initialState.node.getEnclosedSet(), this.initialState);
+		this.cache.put(current.node.getEnclosedSet(), current);
+		this.flushes++;
+	}
+
+	public int getCachedStates() { return this.cache.size(); }
+	public int getMaxStates() { return this.maxStates; }
+	public long getHits() { return this.hits; }
+	public long getMisses() { return this.misses; }
+	public long getFlushes() { return this.flushes; }
+
+	/**
+	 * The fraction of transitions that were found in the cache rather than computed.
+	 * @return The hit rate, between 0 and 1, or 0 if nothing has been matched yet
+	 */
+	public double getHitRate() {
+		long total = this.hits + this.misses;
+		return total == 0 ? 0 : (double) this.hits / total;
+	}
+
+	public char[] getSigma() { return this.sigma.clone(); }
+
+}
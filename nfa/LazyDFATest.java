@@ -0,0 +1,72 @@
+package nfa;
+
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class LazyDFATest {
+
+	@Test
+	public void agreesWithDFAWhileFlushing() {
+		Random random = new Random(11);
+		for(int seed = 0; seed < 10; seed++) {
+			NFA nfa = new NFA(AutomatonGenerator.randomNFA(15, 3, 0.2, 0.3, 0.2, seed));
+			LazyDFATest.assertAgrees(nfa, random);
+		}
+		for(int k = 2; k <= 5; k++) {
+			LazyDFATest.assertAgrees(new NFA(AutomatonGenerator.kthFromEndNFA(k)), random);
+		}
+	}
+
+	@Test
+	public void flushesWhenTheCacheIsFull() {
+		LazyDFA lazy = new LazyDFA(new NFA(AutomatonGenerator.kthFromEndNFA(4)), 3);
+		char[] sigma = lazy.getSigma();
+		Random random = new Random(3);
+		for(int n = 0; n < 50; n++) {
+			lazy.matches(LazyDFATest.randomInput(sigma, random, 20));
+			assertTrue(lazy.getCachedStates() <= lazy.getMaxStates());
+		}
+		assertTrue(lazy.getFlushes() > 0);
+	}
+
+	@Test
+	public void reportsTheHitRate() {
+		LazyDFA lazy = new LazyDFA(new NFA(AutomatonGenerator.kthFromEndNFA(3)), 100);
+		assertEquals(0, lazy.getHitRate(), 0);
+
+		lazy.matches("abbabaab");
+		lazy.matches("abbabaab");
+		long hits = lazy.getHits();
+		long misses = lazy.getMisses();
+		assertTrue(hits > 0);
+		assertTrue(misses > 0);
+		assertEquals(16, hits + misses);
+		assertEquals((double) hits / (hits + misses), lazy.getHitRate(), 1e-12);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void needsRoomForThreeStates() {
+		new LazyDFA(new NFA(AutomatonGenerator.kthFromEndNFA(2)), 2);
+	}
+
+	private static void assertAgrees(NFA nfa, Random random) {
+		DFA dfa = new DFA(nfa);
+		LazyDFA lazy = new LazyDFA(nfa, 3);
+		char[] sigma = lazy.getSigma();
+		for(int n = 0; n < 100; n++) {
+			String input = LazyDFATest.randomInput(sigma, random, 15);
+			assertEquals(input, dfa.matches(input), lazy.matches(input));
+		}
+	}
+
+	private static String randomInput(char[] sigma, Random random, int maxLength) {
+		char[] input = new char[random.nextInt(maxLength + 1)];
+		for(int i = 0; i < input.length; i++) {
+			input[i] = sigma[random.nextInt(sigma.length)];
+		}
+		return new String(input);
+	}
+
+}
@@ -0,0 +1,296 @@
+package nfa;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * A LineScanner tests every line of a file against a CompiledDFA, like grep.
+ * The file is memory mapped and the automaton runs directly over the mapped
+ * bytes, so no Strings are created for lines that do not match and the file
+ * never has to fit in the heap.
+ * Each byte is read as the char with the same value (ISO-8859-1).  Sigma is
+ * normally ASCII, and any byte of a multi-byte UTF-8 character is outside of
+ * it, so lines are accepted exactly when their decoded String would be.
+ * Lines end at '\n', and a '\r' before the '\n' is not part of the line.
+ * Unlike Reader.readIntoLines, empty lines are tested as well.
+ * @author mjoer
+ */
+public class LineScanner {
+
+	private static final long DEFAULT_MAX_MAPPING = 1L << 30;
+
+	private final CompiledDFA dfa;
+	private final long maxMapping;
+
+	/**
+	 * Receives the lines accepted by the automaton.
+	 */
+	public interface LineConsumer {
+		/**
+		 * @param offset The offset in the file of the first byte of the line
+		 * @param length The length of the line in bytes, without the line terminator
+		 */
+		void accept(long offset, int length);
+	}
+
+	/**
+	 * Receives accepted lines along with the mapped window holding them.
+	 */
+	private interface WindowConsumer {
+		void accept(MappedByteBuffer window, long windowStart, int lineStart, int lineEnd);
+	}
+
+	public LineScanner(CompiledDFA dfa) {
+		this(dfa, DEFAULT_MAX_MAPPING);
+	}
+
+	/**
+	 * @param dfa The automaton to test lines with
+	 * @param maxMapping The most bytes mapped at once.  No line may be longer.
+	 */
+	LineScanner(CompiledDFA dfa, long maxMapping) {
+		this.dfa = dfa;
+		this.maxMapping = maxMapping;
+	}
+
+	/**
+	 * Scan a whole file in order.
+	 * @param file The file to scan
+	 * @param consumer Receives every accepted line, in file order
+	 * @return The number of accepted lines
+	 * @throws IOException If the file can't be read
+	 */
+	public long scan(Path file, LineConsumer consumer) throws IOException {
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return this.scanRange(channel, 0, channel.size(), 
+					(window, windowStart, lineStart, lineEnd) -> consumer.accept(windowStart + lineStart, lineEnd - lineStart));
+		}
+	}
+
+	/**
+	 * Find the offsets of every accepted line in a file.  The file is split into
+	 * pieces at line boundaries and the pieces are scanned in parallel.
+	 * @param file The file to scan
+	 * @param parallelism The number of pieces to scan at once
+	 * @return The offsets of the accepted lines, in increasing order
+	 * @throws IOException If the file can't be read
+	 */
+	public long[] matchingOffsets(Path file, int parallelism) throws IOException {
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long[] bounds = this.split(channel, parallelism);
+			if(bounds.length == 2) {
+				OffsetList offsets = new OffsetList();
+				this.scanRange(channel, bounds[0], bounds[1], offsets);
+				return offsets.toArray();
+			}
+
+			ForkJoinPool pool = new ForkJoinPool(parallelism);
+			try {
+				List<Future<long[]>> pieces = new ArrayList<>();
+				for(int i = 0; i + 1 < bounds.length; i++) {
+					long from = bounds[i];
+					long to = bounds[i + 1];
+					pieces.add(pool.submit(() -> {
+						OffsetList offsets = new OffsetList();
+						this.scanRange(channel, from, to, offsets);
+						return offsets.toArray();
+					}));
+				}
+
+				OffsetList offsets = new OffsetList();
+				for(Future<long[]> piece : pieces) {
+					offsets.addAll(piece.get());
+				}
+				return offsets.toArray();
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while scanning " + file, e);
+			} catch(ExecutionException e) {
+				if(e.getCause() instanceof IOException)
+					throw (IOException) e.getCause();
+				throw new IOException("Failed to scan " + file, e.getCause());
+			} finally {
+				pool.shutdown();
+			}
+		}
+	}
+
+	/**
+	 * Print every accepted line of a file.  Only the accepted lines are decoded
+	 * (as UTF-8).
+	 * @param file The file to scan
+	 * @param out The stream to print to
+	 * @return The number of accepted lines
+	 * @throws IOException If the file can't be read
+	 */
+	public long printMatchingLines(Path file, PrintStream out) throws IOException {
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			byte[][] buffer = new byte[][] { new byte[256] };
+			return this.scanRange(channel, 0, channel.size(), (window, windowStart, lineStart, lineEnd) -> {
+				int length = lineEnd - lineStart;
+				if(buffer[0].length < length) {
+					buffer[0] = new byte[Math.max(length, buffer[0].length * 2)];
+				}
+				for(int i = 0; i < length; i++) {
+					buffer[0][i] = window.get(lineStart + i);
+				}
+				out.println(new String(buffer[0], 0, length, StandardCharsets.UTF_8));
+			});
+		}
+	}
+
+	/**
+	 * Split a file into pieces of about equal size which start at the beginning
+	 * of a line.
+	 * @param channel The file to split
+	 * @param pieces The number of pieces wanted
+	 * @return The boundaries of the pieces: piece i is [bounds[i], bounds[i + 1])
+	 * @throws IOException If the file can't be read
+	 */
+	long[] split(FileChannel channel, int pieces) throws IOException {
+		long size = channel.size();
+		long[] bounds = new long[pieces + 1];
+		int count = 1;
+		for(int i = 1; i < pieces; i++) {
+			long target = Math.max(size * i / pieces, bounds[count - 1]);
+			long lineStart = this.nextLineStart(channel, target, size);
+			if(lineStart > bounds[count - 1] && lineStart < size) {
+				bounds[count++] = lineStart;
+			}
+		}
+		bounds[count++] = size;
+		return Arrays.copyOf(bounds, count);
+	}
+
+	/**
+	 * Find the start of the first line at or after a position.
+	 */
+	private long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+		if(position == 0)
+			return 0;
+		// The line starts after the previous newline, so look from position - 1
+		long searchFrom = position - 1;
+		while(searchFrom < size) {
+			long length = Math.min(64 * 1024, size - searchFrom);
+			MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, searchFrom, length);
+			for(int i = 0; i < length; i++) {
+				if(window.get(i) == '\n')
+					return searchFrom + i + 1;
+			}
+			searchFrom += length;
+		}
+		return size;
+	}
+
+	/**
+	 * Scan the lines in [from, to), which must start at the beginning of a line.
+	 * The range is mapped in windows of at most maxMapping bytes which end on a
+	 * line boundary.
+	 * @return The number of accepted lines
+	 */
+	private long scanRange(FileChannel channel, long from, long to, WindowConsumer consumer) throws IOException {
+		long start = System.nanoTime();
+		long lines = 0;
+		long matches = 0;
+		long windowStart = from;
+		int initialState = this.dfa.getInitialState();
+
+		while(windowStart < to) {
+			int windowLength = (int) Math.min(this.maxMapping, to - windowStart);
+			boolean lastWindow = windowStart + windowLength == to;
+			MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowLength);
+
+			int lineStart = 0;
+			int state = initialState;
+			// The state before the last byte, which is where a line ending in
+			// "\r\n" really ends
+			int beforeLast = initialState;
+			for(int i = 0; i < windowLength; i++) {
+				byte b = window.get(i);
+				if(b == '\n') {
+					boolean carriageReturn = i > lineStart && window.get(i - 1) == '\r';
+					if(this.isAccepted(carriageReturn ? beforeLast : state)) {
+						consumer.accept(window, windowStart, lineStart, carriageReturn ? i - 1 : i);
+						matches++;
+					}
+					lines++;
+					lineStart = i + 1;
+					state = initialState;
+					beforeLast = initialState;
+				} else {
+					beforeLast = state;
+					if(state != CompiledDFA.REJECT) {
+						state = this.dfa.step(state, (char) (b & 0xFF));
+						// Nothing later in the line can make it accepted
+						if(state != CompiledDFA.REJECT && this.dfa.isDead(state)) {
+							state = CompiledDFA.REJECT;
+						}
+					}
+				}
+			}
+
+			if(lineStart < windowLength) {
+				if(!lastWindow) {
+					if(lineStart == 0)
+						throw new IOException("Line at offset " + windowStart + " is longer than " + this.maxMapping + " bytes");
+					// Rescan the partial line at the start of the next window
+					windowStart += lineStart;
+					continue;
+				}
+				// The last line of the file has no newline
+				lines++;
+				boolean carriageReturn = window.get(windowLength - 1) == '\r';
+				if(this.isAccepted(carriageReturn ? beforeLast : state)) {
+					consumer.accept(window, windowStart, lineStart, carriageReturn ? windowLength - 1 : windowLength);
+					matches++;
+				}
+			}
+			windowStart += windowLength;
+		}
+		Metrics.get().inputsMatched(lines, System.nanoTime() - start);
+		return matches;
+	}
+
+	private boolean isAccepted(int state) {
+		return state != CompiledDFA.REJECT && this.dfa.isAccepting(state);
+	}
+
+	/**
+	 * A growable list of primitive longs, to collect offsets without boxing.
+	 */
+	private static class OffsetList implements WindowConsumer {
+		private long[] offsets = new long[64];
+		private int size;
+
+		@Override
+		public void accept(MappedByteBuffer window, long windowStart, int lineStart, int lineEnd) {
+			this.add(windowStart + lineStart);
+		}
+
+		private void add(long offset) {
+			if(this.size == this.offsets.length) {
+				this.offsets = Arrays.copyOf(this.offsets, this.size * 2);
+			}
+			this.offsets[this.size++] = offset;
+		}
+
+		private void addAll(long[] more) {
+			for(long offset : more) {
+				this.add(offset);
+			}
+		}
+
+		private long[] toArray() { return Arrays.copyOf(this.offsets, this.size); }
+	}
+
+}
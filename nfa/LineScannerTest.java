@@ -0,0 +1,139 @@
+package nfa;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class LineScannerTest {
+
+	private static final CompiledDFA DFA = new MinimizedDFA(RegexCompiler.glushkov("a(b|c)*")).compile();
+
+	private static final String LINES =
+			"abc\n" +
+			"abbb\r\n" +
+			"\n" +
+			"bca\n" +
+			"acccccccbbbbbbbbbbcbcb\r\n" +
+			"a\r\n" +
+			"\r\n" +
+			"x\n" +
+			"ab";
+
+	@Test
+	public void findsLinesEndingInLFAndCRLF() throws IOException {
+		long[] expected = LineScannerTest.expectedOffsets(LINES);
+		assertEquals(5, expected.length);
+		assertArrayEquals(expected, LineScannerTest.scan(new LineScanner(DFA), LINES));
+	}
+
+	@Test
+	public void testsTheLastLineWithoutANewline() throws IOException {
+		assertArrayEquals(new long[] { 0, 4 }, LineScannerTest.scan(new LineScanner(DFA), "abc\nab"));
+		assertArrayEquals(new long[] { 0, 4 }, LineScannerTest.scan(new LineScanner(DFA), "abc\nab\r"));
+		assertArrayEquals(new long[] { 0 }, LineScannerTest.scan(new LineScanner(DFA), "abc\nb"));
+	}
+
+	@Test
+	public void scansAnEmptyFile() throws IOException {
+		assertArrayEquals(new long[0], LineScannerTest.scan(new LineScanner(DFA), ""));
+		Path file = LineScannerTest.write("");
+		try {
+			assertArrayEquals(new long[0], new LineScanner(DFA).matchingOffsets(file, 3));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void rescansLinesAcrossSmallWindows() throws IOException {
+		StringBuilder content = new StringBuilder();
+		for(int i = 0; i < 40; i++) {
+			content.append(i % 3 == 0 ? "abcb" : "ba").append(i % 2 == 0 ? "\r\n" : "\n");
+			content.append("acbcbcbcbc\n");
+		}
+		String lines = content.toString();
+		assertArrayEquals(LineScannerTest.expectedOffsets(lines), LineScannerTest.scan(new LineScanner(DFA, 16), lines));
+	}
+
+	@Test
+	public void rejectsLinesLongerThanTheMapping() throws IOException {
+		try {
+			LineScannerTest.scan(new LineScanner(DFA, 16), "ab\nabcbcbcbcbcbcbcbcbcbc\nab\n");
+			fail("A line longer than the mapping was scanned");
+		} catch(IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("longer than 16 bytes"));
+		}
+	}
+
+	@Test
+	public void parallelScansFindTheSameLines() throws IOException {
+		StringBuilder content = new StringBuilder();
+		for(int i = 0; i < 200; i++) {
+			content.append(i % 7 == 0 ? "x" : "a").append("bc".substring(0, i % 3)).append(i % 5 == 0 ? "\r\n" : "\n");
+		}
+		String lines = content.toString();
+		Path file = LineScannerTest.write(lines);
+		try {
+			LineScanner scanner = new LineScanner(DFA, 64);
+			long[] expected = LineScannerTest.expectedOffsets(lines);
+			assertArrayEquals(expected, LineScannerTest.scan(scanner, lines));
+			for(int parallelism : new int[] { 1, 3, 8 }) {
+				assertArrayEquals("parallelism " + parallelism, expected, scanner.matchingOffsets(file, parallelism));
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	private static long[] scan(LineScanner scanner, String content) throws IOException {
+		Path file = LineScannerTest.write(content);
+		try {
+			List<Long> offsets = new ArrayList<>();
+			scanner.scan(file, (offset, length) -> offsets.add(offset));
+			long[] result = new long[offsets.size()];
+			for(int i = 0; i < result.length; i++) {
+				result[i] = offsets.get(i);
+			}
+			return result;
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	/**
+	 * @return The offsets of the lines DFA accepts, found by splitting the
+	 * 		content into Strings
+	 */
+	private static long[] expectedOffsets(String content) {
+		long[] offsets = new long[content.length()];
+		int count = 0;
+		int lineStart = 0;
+		while(lineStart < content.length()) {
+			int newline = content.indexOf('\n', lineStart);
+			int end = newline < 0 ? content.length() : newline;
+			String line = content.substring(lineStart, end);
+			if(line.endsWith("\r")) {
+				line = line.substring(0, line.length() - 1);
+			}
+			if(DFA.matches(line)) {
+				offsets[count++] = lineStart;
+			}
+			lineStart = end + 1;
+		}
+		return Arrays.copyOf(offsets, count);
+	}
+
+	private static Path write(String content) throws IOException {
+		Path file = Files.createTempFile("lines", ".txt");
+		Files.write(file, content.getBytes(StandardCharsets.ISO_8859_1));
+		return file;
+	}
+
+}
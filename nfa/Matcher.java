@@ -0,0 +1,128 @@
+package nfa;
+import java.io.IOException;
+import java.nio.CharBuffer;
+
+/**
+ * A Matcher runs input through a CompiledDFA incrementally.  Input can be fed
+ * in chunks as it arrives, and the matcher reports whether everything fed so
+ * far is accepted.  Nothing is buffered, so a Matcher can follow streams of
+ * any length.  A Matcher holds the current state, so each thread needs its own,
+ * but any number of Matchers can share one CompiledDFA.
+ * @author mjoer
+ */
+public class Matcher {
+
+	private static final int READ_BUFFER_SIZE = 8192;
+
+	private final CompiledDFA dfa;
+	private int state;
+	private long consumed;
+	private char[] readBuffer;
+
+	public Matcher(CompiledDFA dfa) {
+		this.dfa = dfa;
+		this.reset();
+	}
+
+	/**
+	 * Return to the initial state so the Matcher can be reused for a new input.
+	 * @return This Matcher
+	 */
+	public Matcher reset() {
+		this.state = this.dfa.getInitialState();
+		this.consumed = 0;
+		return this;
+	}
+
+	public Matcher feed(char c) {
+		if(this.state != CompiledDFA.REJECT && !this.dfa.isDead(this.state)) {
+			this.state = this.dfa.step(this.state, c);
+		}
+		this.consumed++;
+		return this;
+	}
+
+	/**
+	 * Feed a slice of a char array.
+	 * @param chars The array holding the input
+	 * @param offset The index of the first char to feed
+	 * @param length The number of chars to feed
+	 * @return This Matcher
+	 */
+	public Matcher feed(char[] chars, int offset, int length) {
+		if(this.state != CompiledDFA.REJECT) {
+			this.state = this.dfa.run(this.state, chars, offset, offset + length);
+		}
+		this.consumed += length;
+		return this;
+	}
+
+	public Matcher feed(CharSequence chars) {
+		if(this.state != CompiledDFA.REJECT) {
+			this.state = this.dfa.run(this.state, chars, 0, chars.length());
+		}
+		this.consumed += chars.length();
+		return this;
+	}
+
+	/**
+	 * Feed the remaining chars of a buffer.  The buffer's position is
+	 * advanced to its limit.
+	 * @param buffer The buffer holding the input
+	 * @return This Matcher
+	 */
+	public Matcher feed(CharBuffer buffer) {
+		if(buffer.hasArray()) {
+			int length = buffer.remaining();
+			this.feed(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+			buffer.position(buffer.limit());
+			return this;
+		}
+		int state = this.state;
+		long length = buffer.remaining();
+		while(buffer.hasRemaining() && state != CompiledDFA.REJECT && !this.dfa.isDead(state)) {
+			state = this.dfa.step(state, buffer.get());
+		}
+		buffer.position(buffer.limit());
+		this.state = state;
+		this.consumed += length;
+		return this;
+	}
+
+	/**
+	 * Feed everything that can be read from a reader, until the end of the stream.
+	 * The reader is not closed.
+	 * @param reader The reader to read input from
+	 * @return This Matcher
+	 * @throws IOException If the reader throws
+	 */
+	public Matcher feed(java.io.Reader reader) throws IOException {
+		if(this.readBuffer == null) {
+			this.readBuffer = new char[READ_BUFFER_SIZE];
+		}
+		int read;
+		while((read = reader.read(this.readBuffer, 0, this.readBuffer.length)) != -1) {
+			this.feed(this.readBuffer, 0, read);
+		}
+		return this;
+	}
+
+	/**
+	 * @return True if the input fed since the last reset is accepted
+	 */
+	public boolean isAccepting() {
+		return this.state != CompiledDFA.REJECT && this.dfa.isAccepting(this.state);
+	}
+
+	/**
+	 * @return True if no further input can make the input accepted, because
+	 * 		it contained a character outside of sigma or reached a dead state
+	 */
+	public boolean isRejected() {
+		return this.state == CompiledDFA.REJECT || this.dfa.isDead(this.state);
+	}
+
+	public int getState() { return this.state; }
+	public long getConsumed() { return this.consumed; }
+
+}
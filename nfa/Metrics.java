@@ -0,0 +1,38 @@
+package nfa;
+
+/**
+ * Holds the MetricsListener that every automaton reports to.  It is
+ * MetricsListener.NONE until another listener is set, which costs no more
+ * than a few calls to System.nanoTime per phase.
+ * @author mjoer
+ */
+public class Metrics {
+
+	public static final String PARSE = "parse";
+	public static final String LAMBDA_CLOSURES = "lambda-closures";
+	public static final String DETERMINIZE = "determinize";
+	public static final String MINIMIZE = "minimize";
+
+	private static volatile MetricsListener listener = MetricsListener.NONE;
+
+	private Metrics() {}
+
+	public static MetricsListener get() { return Metrics.listener; }
+
+	/**
+	 * @param listener The listener to report to, or null to stop reporting
+	 */
+	public static void set(MetricsListener listener) {
+		Metrics.listener = listener == null ? MetricsListener.NONE : listener;
+	}
+
+	/**
+	 * Report that a phase which started at start has finished.
+	 * @param phase The name of the phase
+	 * @param start The System.nanoTime when the phase started
+	 */
+	static void phaseCompleted(String phase, long start) {
+		Metrics.listener.phaseCompleted(phase, System.nanoTime() - start);
+	}
+
+}
@@ -0,0 +1,50 @@
+package nfa;
+
+/**
+ * Receives measurements from parsing, subset construction, minimization and
+ * matching.  Every method does nothing by default, so a listener only
+ * overrides what it is interested in.  Methods may be called from several
+ * threads at once.
+ * The listener in use is set with Metrics.set.
+ * @author mjoer
+ */
+public interface MetricsListener {
+
+	/**
+	 * The listener used when none is set.  It ignores everything.
+	 */
+	MetricsListener NONE = new MetricsListener() {};
+
+	/**
+	 * A phase, such as Metrics.DETERMINIZE, has finished.
+	 * @param phase The name of the phase
+	 * @param nanos How long the phase took
+	 */
+	default void phaseCompleted(String phase, long nanos) {}
+
+	/**
+	 * Subset construction found a new DFA state.
+	 * @param size The number of NFA states in its subset
+	 */
+	default void subsetDiscovered(int size) {}
+
+	/**
+	 * The lambda closures of an NFA were computed.
+	 * @param closures The number of distinct closures
+	 */
+	default void lambdaClosuresComputed(int closures) {}
+
+	/**
+	 * A minimizer finished refining its partition.
+	 * @param splits The number of times a block was split
+	 */
+	default void blocksSplit(int splits) {}
+
+	/**
+	 * A batch of inputs was tested.
+	 * @param inputs The number of inputs tested
+	 * @param nanos How long testing them took
+	 */
+	default void inputsMatched(long inputs, long nanos) {}
+
+}
@@ -0,0 +1,159 @@
+package nfa;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * A MetricsRecorder adds up everything it is told, and can export the totals
+ * through JMX or print them as a summary.
+ * @author mjoer
+ */
+public class MetricsRecorder implements MetricsListener, MetricsRecorderMXBean {
+
+	public static final String OBJECT_NAME = "nfa:type=MetricsRecorder";
+
+	private final LinkedHashMap<String, Long> phaseNanos = new LinkedHashMap<>();
+	private final LongAdder statesDiscovered = new LongAdder();
+	// Bucket i holds the subsets of size [2^(i-1), 2^i), bucket 0 the empty ones
+	private final AtomicLongArray subsetSizes = new AtomicLongArray(Integer.SIZE + 1);
+	private final LongAdder lambdaClosures = new LongAdder();
+	private final LongAdder blockSplits = new LongAdder();
+	private final LongAdder inputsMatched = new LongAdder();
+	private final LongAdder matchNanos = new LongAdder();
+
+	/**
+	 * Create a MetricsRecorder, make it the current listener and register it
+	 * with the platform MBean server as OBJECT_NAME, replacing any recorder
+	 * registered before.
+	 * @return The new recorder
+	 * @throws JMException If the recorder can't be registered
+	 */
+	public static MetricsRecorder installWithJmx() throws JMException {
+		MetricsRecorder recorder = new MetricsRecorder();
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(OBJECT_NAME);
+		if(server.isRegistered(name)) {
+			server.unregisterMBean(name);
+		}
+		server.registerMBean(recorder, name);
+		Metrics.set(recorder);
+		return recorder;
+	}
+
+	@Override
+	public synchronized void phaseCompleted(String phase, long nanos) {
+		this.phaseNanos.merge(phase, nanos, Long::sum);
+	}
+
+	@Override
+	public void subsetDiscovered(int size) {
+		this.statesDiscovered.increment();
+		this.subsetSizes.incrementAndGet(Integer.SIZE - Integer.numberOfLeadingZeros(size));
+	}
+
+	@Override
+	public void lambdaClosuresComputed(int closures) {
+		this.lambdaClosures.add(closures);
+	}
+
+	@Override
+	public void blocksSplit(int splits) {
+		this.blockSplits.add(splits);
+	}
+
+	@Override
+	public void inputsMatched(long inputs, long nanos) {
+		this.inputsMatched.add(inputs);
+		this.matchNanos.add(nanos);
+	}
+
+	@Override
+	public synchronized Map<String, Double> getPhaseMillis() {
+		Map<String, Double> millis = new LinkedHashMap<>();
+		for(Map.Entry<String, Long> phase : this.phaseNanos.entrySet()) {
+			millis.put(phase.getKey(), phase.getValue() / 1e6);
+		}
+		return millis;
+	}
+
+	@Override
+	public long getStatesDiscovered() { return this.statesDiscovered.sum(); }
+
+	@Override
+	public synchronized double getStatesPerSecond() {
+		Long nanos = this.phaseNanos.get(Metrics.DETERMINIZE);
+		return nanos == null || nanos == 0 ? 0 : this.statesDiscovered.sum() * 1e9 / nanos;
+	}
+
+	@Override
+	public long[] getSubsetSizeHistogram() {
+		int length = this.subsetSizes.length();
+		while(length > 0 && this.subsetSizes.get(length - 1) == 0) {
+			length--;
+		}
+		long[] histogram = new long[length];
+		for(int i = 0; i < length; i++) {
+			histogram[i] = this.subsetSizes.get(i);
+		}
+		return histogram;
+	}
+
+	@Override
+	public long getLambdaClosures() { return this.lambdaClosures.sum(); }
+
+	@Override
+	public long getBlockSplits() { return this.blockSplits.sum(); }
+
+	@Override
+	public long getInputsMatched() { return this.inputsMatched.sum(); }
+
+	@Override
+	public double getMatchesPerSecond() {
+		long nanos = this.matchNanos.sum();
+		return nanos == 0 ? 0 : this.inputsMatched.sum() * 1e9 / nanos;
+	}
+
+	@Override
+	public synchronized void reset() {
+		this.phaseNanos.clear();
+		this.statesDiscovered.reset();
+		for(int i = 0; i < this.subsetSizes.length(); i++) {
+			this.subsetSizes.set(i, 0);
+		}
+		this.lambdaClosures.reset();
+		this.blockSplits.reset();
+		this.inputsMatched.reset();
+		this.matchNanos.reset();
+	}
+
+	/**
+	 * Print the time spent in every phase and the other totals.
+	 * @param out The stream to print to
+	 */
+	public void printSummary(PrintStream out) {
+		out.println("Phase timings:");
+		for(Map.Entry<String, Double> phase : this.getPhaseMillis().entrySet()) {
+			out.printf("  %-16s %10.3f ms%n", phase.getKey(), phase.getValue());
+		}
+		out.printf("  %-16s %10.3f ms%n", "match", this.matchNanos.sum() / 1e6);
+		out.printf("DFA states discovered: %d (%.0f per second)%n", this.getStatesDiscovered(), this.getStatesPerSecond());
+		long[] histogram = this.getSubsetSizeHistogram();
+		for(int i = 0; i < histogram.length; i++) {
+			if(histogram[i] != 0) {
+				out.printf("  subsets of size %s: %d%n",
+						i <= 1 ? String.valueOf(i) : (1L << (i - 1)) + "-" + ((1L << i) - 1), histogram[i]);
+			}
+		}
+		out.printf("Lambda closures: %d%n", this.getLambdaClosures());
+		out.printf("Block splits: %d%n", this.getBlockSplits());
+		out.printf("Inputs matched: %d (%.0f per second)%n", this.getInputsMatched(), this.getMatchesPerSecond());
+	}
+
+}
@@ -0,0 +1,31 @@
+package nfa;
+import java.util.Map;
+
+/**
+ * The JMX view of a MetricsRecorder.
+ * @author mjoer
+ */
+public interface MetricsRecorderMXBean {
+
+	/**
+	 * @return The total milliseconds spent in each phase
+	 */
+	Map<String, Double> getPhaseMillis();
+
+	long getStatesDiscovered();
+	double getStatesPerSecond();
+
+	/**
+	 * @return Entry i counts the subsets with a size in [2^(i-1), 2^i), and
+	 * 		entry 0 counts the empty subsets
+	 */
+	long[] getSubsetSizeHistogram();
+
+	long getLambdaClosures();
+	long getBlockSplits();
+	long getInputsMatched();
+	double getMatchesPerSecond();
+
+	void reset();
+
+}
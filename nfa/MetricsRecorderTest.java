@@ -0,0 +1,63 @@
+package nfa;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class MetricsRecorderTest {
+
+	@Test
+	public void recordsEveryPhase() {
+		MetricsRecorder recorder = new MetricsRecorder();
+		Metrics.set(recorder);
+		try {
+			NFA nfa = new NFA(AutomatonGenerator.kthFromEndNFA(4));
+			DFA dfa = new DFA(nfa);
+			MinimizedDFA minimized = dfa.minimize();
+			try(BatchMatcher batch = new BatchMatcher(minimized)) {
+				batch.matchIndices(new String[] { "abbb", "bbbb", "aaaa" });
+			}
+
+			Map<String, Double> phases = recorder.getPhaseMillis();
+			assertEquals(Arrays.asList(Metrics.PARSE, Metrics.LAMBDA_CLOSURES, Metrics.DETERMINIZE, Metrics.MINIMIZE),
+					Arrays.asList(phases.keySet().toArray()));
+			assertEquals(dfa.getStates().length, recorder.getStatesDiscovered());
+			long histogramTotal = 0;
+			for(long count : recorder.getSubsetSizeHistogram()) {
+				histogramTotal += count;
+			}
+			assertEquals(recorder.getStatesDiscovered(), histogramTotal);
+			assertTrue(recorder.getLambdaClosures() > 0);
+			assertTrue(recorder.getBlockSplits() > 0);
+			assertEquals(3, recorder.getInputsMatched());
+
+			recorder.reset();
+			assertTrue(recorder.getPhaseMillis().isEmpty());
+			assertEquals(0, recorder.getStatesDiscovered());
+			assertEquals(0, recorder.getSubsetSizeHistogram().length);
+		} finally {
+			Metrics.set(null);
+		}
+	}
+
+	@Test
+	public void fusedMinimizationReportsTheSameStates() {
+		NFA nfa = new NFA(AutomatonGenerator.randomNFA(20, 2, 0.3, 0.2, 0.2, 7));
+		MetricsRecorder recorder = new MetricsRecorder();
+		Metrics.set(recorder);
+		try {
+			DFA dfa = new DFA(nfa);
+			long discovered = recorder.getStatesDiscovered();
+			recorder.reset();
+			new MinimizedDFA(nfa);
+
+			assertEquals(dfa.getStates().length, discovered);
+			assertEquals(discovered, recorder.getStatesDiscovered());
+		} finally {
+			Metrics.set(null);
+		}
+	}
+
+}
@@ -1,109 +1,220 @@
 package nfa;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
+import java.util.IdentityHashMap;
 import java.util.stream.Collectors;
 
-public class MinimizedDFA {
+public class MinimizedDFA implements InputMatcher {
 	
 	private char[] sigma;
 	private DFANode[] states;
 	private DFANode[] acceptingStates;
 	private DFANode initialState;
+	private CompiledDFA compiled;
+	private Searcher searcher;
 	
 	/**
 	 * Creates a minimized DFA using Hopcroft's algorithm.
 	 * @param toMinimize The DFA to minimize
 	 */
-	@SuppressWarnings("unchecked")
 	public MinimizedDFA(DFA toMinimize) {
+		this(toMinimize, 1);
+	}
+	
+	/**
+	 * Creates a minimized DFA.  With a parallelism of 1 Hopcroft's algorithm is
+	 * used, and otherwise the parallel MooreMinimizer.  Both give exactly the
+	 * same states, in the same order.
+	 * @param toMinimize The DFA to minimize
+	 * @param parallelism The number of threads to minimize with
+	 */
+	public MinimizedDFA(DFA toMinimize, int parallelism) {
+		if(parallelism < 1)
+			throw new IllegalArgumentException("parallelism must be at least 1, got " + parallelism);
+		long start = System.nanoTime();
+		DFANode[] dfaStates = toMinimize.getStates();
+		this.sigma = toMinimize.getSigma();
+		
+		IdentityHashMap<DFANode, Integer> stateNumbers = new IdentityHashMap<>();
+		for(int i = 0; i < dfaStates.length; i++) {
+			stateNumbers.put(dfaStates[i], i);
+		}
+		
+		// Flatten the DFA into a transition table.  A missing transition
+		// goes to an extra non-accepting sink state, which rejects just
+		// like the missing transition did.
+		int numStates = dfaStates.length;
+		int sink = numStates;
+		int[] transitions = new int[(numStates + 1) * this.sigma.length];
+		boolean[] accepting = new boolean[numStates + 1];
+		boolean sinkUsed = false;
+		for(int state = 0; state < numStates; state++) {
+			accepting[state] = dfaStates[state].isAccepting();
+			for(int symbol = 0; symbol < this.sigma.length; symbol++) {
+				DFANode next = dfaStates[state].applyTransition(this.sigma[symbol]);
+				if(next == null) {
+					sinkUsed = true;
+				}
+				transitions[state * this.sigma.length + symbol] = next == null ? sink : stateNumbers.get(next);
+			}
+		}
+		if(sinkUsed) {
+			for(int symbol = 0; symbol < this.sigma.length; symbol++) {
+				transitions[sink * this.sigma.length + symbol] = sink;
+			}
+			numStates++;
+		}
 		
-		// Initialize partitions and the initial set to check against
-		// partitions = 'P'
-		ArrayList<ArrayList<DFANode>> partitions = this.initializePartitionSets(toMinimize.getStates());
-		// wSets = 'W'
-		ArrayList<ArrayList<DFANode>> wSets = new ArrayList<>();
-		ArrayList<DFANode> finalStates = new ArrayList<>(); 
-		finalStates.addAll(Arrays.asList(toMinimize.getAcceptingStates()));
-		wSets.add(finalStates);
+		// Minimize over one column per class of symbols
+		SymbolClasses classes = SymbolClasses.of(transitions, numStates, this.sigma.length);
+		transitions = classes.compress(transitions, numStates);
+		this.build(transitions, classes, numStates, stateNumbers.get(toMinimize.getInitialState()), accepting, parallelism);
+		Metrics.phaseCompleted(Metrics.MINIMIZE, start);
+	}
+	
+	/**
+	 * Creates the minimal DFA of an NFA without building its DFA.  Subset
+	 * construction writes every row straight into a transition table, and the
+	 * subsets are kept in a compact SubsetTable rather than as DFANodes.  The
+	 * subsets are dropped before Hopcroft's algorithm runs.  Symbols which
+	 * every NFA state handles the same way are only followed once, through
+	 * the representative of their SymbolClasses class.  The result is the
+	 * same as new DFA(nfa).minimize().
+	 * @param nfa The NFA to determinize and minimize
+	 */
+	public MinimizedDFA(NFA nfa) {
+		long start = System.nanoTime();
+		MetricsListener metrics = Metrics.get();
+		// Get sigma from nfa, minus lambda
+		this.sigma = Arrays.copyOfRange(nfa.getSigma(), 0, nfa.getSigma().length - 1);
+		SymbolClasses classes = SymbolClasses.of(nfa);
+		int numSymbols = classes.getNumClasses();
+		int nfaStates = nfa.getNumStates();
+		LambdaClosureTable closures = nfa.getLambdaClosures();
 		
-		// Begin Hopcroft's Algorithm
-		while(!wSets.isEmpty()) {
-			// Choose one set from W
-			ArrayList<DFANode> chosenW = wSets.remove(0);
-			for(char c : toMinimize.getSigma()) {
-				// Get any state 'q' in toMinimize such that delta(q, c) is in chosen
-				ArrayList<DFANode> canReach = this.filterCanReach(
-						Arrays.asList(toMinimize.getStates()), 
-						chosenW, 
-						c);
-				// Make a temporary array because we'll be modifying partitions
-				ArrayList<ArrayList<DFANode>> tempPartitions = (ArrayList<ArrayList<DFANode>>) partitions.clone();
-				for(ArrayList<DFANode> partition : tempPartitions) {
-					// Get the the intersection of canReach and partition
-					ArrayList<DFANode> intersection = this.intersect(canReach, partition);
-					// Get partition - canReach
-					ArrayList<DFANode> subtraction = this.subtractSet(partition, canReach);
-					// If intersection and subtraction are non-empty, then some states in partition
-					// can reach chosenW, and some can't
-					// This means that they are distinguishable and we should make a new partition
-					if(!intersection.isEmpty() && !subtraction.isEmpty()) {
-						// Remove partition from partitions and add intersection and subtraction to partitions
-						this.replaceWith(partitions, partition, intersection, subtraction);
-						// If wSets contains partition then do the same as above
-						if(wSets.contains(partition)) {
-							this.replaceWith(wSets, partition, intersection, subtraction);
-						} else {
-							// Otherwise add the smaller of the two new partitions to wSets
-							if (intersection.size() <= subtraction.size()) {
-								wSets.add(intersection);
-							} else {
-								wSets.add(subtraction);
+		// The IDs of the targets of every NFA state on every class of symbols
+		int[][] moves = new int[nfaStates * numSymbols][];
+		boolean[] nfaAccepting = new boolean[nfaStates];
+		for(int q = 0; q < nfaStates; q++) {
+			NFANode node = nfa.getState(q);
+			nfaAccepting[q] = node.isAccepting();
+			for(int symbol = 0; symbol < numSymbols; symbol++) {
+				NFANode[] targets = node.applyTransition(this.sigma[classes.representative(symbol)]);
+				moves[q * numSymbols + symbol] = new int[targets.length];
+				for(int t = 0; t < targets.length; t++) {
+					moves[q * numSymbols + symbol][t] = targets[t].getId();
+				}
+			}
+		}
+		
+		SubsetTable subsets = new SubsetTable();
+		int[] scratch = new int[nfaStates];
+		// A state or closure component is in the set being built if its mark
+		// equals the current stamp, so the marks never need clearing
+		int[] stateMark = new int[nfaStates];
+		int[] componentMark = new int[closures.getNumComponents()];
+		int stamp = 0;
+		
+		StateSet initialClosure = closures.getClosure(nfa.getInitialState().getId());
+		subsets.intern(initialClosure.toArray(), initialClosure.size());
+		metrics.subsetDiscovered(initialClosure.size());
+		
+		// Subsets are numbered in the order they are found, which is the order
+		// DFA(NFA) numbers its states in
+		int[] transitions = new int[64 * Math.max(1, numSymbols)];
+		boolean[] accepting = new boolean[64];
+		for(int state = 0; state < subsets.size(); state++) {
+			if((state + 1) * numSymbols > transitions.length) {
+				transitions = Arrays.copyOf(transitions, transitions.length * 2);
+			}
+			if(state == accepting.length) {
+				accepting = Arrays.copyOf(accepting, accepting.length * 2);
+			}
+			
+			for(int i = subsets.start(state); i < subsets.end(state); i++) {
+				accepting[state] |= nfaAccepting[subsets.element(i)];
+			}
+			
+			for(int symbol = 0; symbol < numSymbols; symbol++) {
+				stamp++;
+				int size = 0;
+				for(int i = subsets.start(state); i < subsets.end(state); i++) {
+					for(int target : moves[subsets.element(i) * numSymbols + symbol]) {
+						int component = closures.getComponent(target);
+						if(componentMark[component] == stamp)
+							continue;
+						componentMark[component] = stamp;
+						StateSet closure = closures.getClosure(target);
+						for(int c = 0; c < closure.size(); c++) {
+							int q = closure.get(c);
+							if(stateMark[q] != stamp) {
+								stateMark[q] = stamp;
+								scratch[size++] = q;
 							}
 						}
 					}
 				}
+				Arrays.sort(scratch, 0, size);
+				int known = subsets.size();
+				transitions[state * numSymbols + symbol] = subsets.intern(scratch, size);
+				if(subsets.size() > known) {
+					metrics.subsetDiscovered(size);
+				}
 			}
 		}
 		
-		this.sigma = toMinimize.getSigma();
-		this.states = new DFANode[partitions.size()];
+		// Let the subsets be collected while minimizing
+		int numStates = subsets.size();
+		subsets = null;
+		moves = null;
+		Metrics.phaseCompleted(Metrics.DETERMINIZE, start);
 		
+		start = System.nanoTime();
+		this.build(transitions, classes, numStates, 0, accepting, 1);
+		Metrics.phaseCompleted(Metrics.MINIMIZE, start);
+	}
+	
+	/**
+	 * Minimize a DFA given as a transition table and build the DFANodes of
+	 * the result.  Each partition found by the minimizer becomes one state,
+	 * numbered in order of the lowest original state it contains.
+	 * @param transitions The transition table, indexed by (state * classes + class)
+	 * @param classes The classes of sigma the table has a column for
+	 * @param numStates The number of states in the table
+	 * @param initialState The initial state
+	 * @param accepting Whether each state is accepting
+	 * @param parallelism 1 for HopcroftMinimizer, more for MooreMinimizer
+	 */
+	private void build(int[] transitions, SymbolClasses classes, int numStates, int initialState, boolean[] accepting, int parallelism) {
+		int numClasses = classes.getNumClasses();
+		int[] initialClasses = this.initializePartitionSets(numStates, accepting);
+		int[] partitionOf = parallelism == 1
+				? HopcroftMinimizer.minimize(transitions, numStates, numClasses, initialClasses)
+				: MooreMinimizer.minimize(transitions, numStates, numClasses, initialClasses, parallelism);
+		int numPartitions = HopcroftMinimizer.countBlocks(partitionOf);
+		
+		this.states = new DFANode[numPartitions];
 		for(int i = 0; i < this.states.length; i++) {
 			this.states[i] = new DFANode();
+			this.states[i].setLabel(i + "");
 		}
 		
-		// Initialize the states of the DFA based on the computed partitions
-		for(int i = 0; i < this.states.length; i++) {
-			ArrayList<DFANode> currentPartition = partitions.get(i);
-			// Find the new initial state
-			if(currentPartition.stream().anyMatch(s -> s.equals(toMinimize.getInitialState()))) {
-				this.initialState = this.states[i];
-			}
-			// Find the new accepting state(s)
-			this.states[i].setAccepting(currentPartition.stream().anyMatch(s -> s.isAccepting()));
-			// Set the label of the current state
-			this.states[i].setLabel(i + "");
-			// Set all the transitions for the current state
-			for(char c : this.sigma) {
-				// Get delta(q, c) for all q in currentPartition
-				ArrayList<DFANode> transitionStates = (ArrayList<DFANode>) currentPartition.stream()
-						.map(s -> s.applyTransition(c))
-						.collect(Collectors.toList());
-				// Find the partition that contains all the states in transitionStates
-				// This is the state that the new transition on c will target
-				ArrayList<DFANode> matchingPartition = partitions.stream()
-						.filter(p -> p.containsAll(transitionStates))
-						.collect(Collectors.toList()).get(0);
-				// Get the index of matchinPartition
-				int minTransitionState = partitions.indexOf(matchingPartition);
-				// Get the DFANode at minTransitionState and create the transition
-				this.states[i].addTransition(c, this.states[minTransitionState]);
+		// Every state in a partition has equivalent transitions, so the first
+		// state seen in each partition is used to set its transitions
+		boolean[] built = new boolean[numPartitions];
+		for(int state = 0; state < numStates; state++) {
+			int partition = partitionOf[state];
+			if(built[partition])
+				continue;
+			built[partition] = true;
+			this.states[partition].setAccepting(accepting[state]);
+			for(int symbol = 0; symbol < this.sigma.length; symbol++) {
+				int target = partitionOf[transitions[state * numClasses + classes.classOf(symbol)]];
+				this.states[partition].addTransition(this.sigma[symbol], this.states[target]);
 			}
-			
 		}
 		
+		this.initialState = this.states[partitionOf[initialState]];
 		this.acceptingStates = Arrays.asList(this.states).stream()
 				.filter(s -> s.isAccepting())
 				.collect(Collectors.toList())
@@ -188,94 +299,68 @@ public String toPresentationString(int limit) {
 	}
 
 	public boolean testInput(String input) {
-		DFANode currentState = this.initialState;
-		for(char c : input.toCharArray()) {
-			currentState = currentState.applyTransition(c);
-			if(currentState == null)
-				return false;
-		}
-		return currentState.isAccepting();
+		return this.matches(input);
 	}
 	
 	/**
-	 * Remove an item from a list, and then add a multitude of items to the same list
-	 * @param list The list to modify
-	 * @param toRemove The item to be removed
-	 * @param replacements The items to add to the list
+	 * Test an input with the compiled form of this DFA, which stops as soon
+	 * as the input can no longer be accepted.
 	 */
-	private <T> void replaceWith(ArrayList<T> list, T toRemove, T ... replacements) {
-		list.remove(toRemove);
-		list.addAll(Arrays.asList(replacements));
+	@Override
+	public boolean matches(CharSequence input) {
+		return this.compile().matches(input);
 	}
 	
 	/**
-	 * Initialize the 'P' set of Hopcroft's algorithm using a list of states. States are
-	 * partitioned based on whether or not they are accepting.
-	 * @param states The states to partition
-	 * @return A new list of lists of DFANodes which have been partitioned
+	 * Get the compiled form of this DFA.  It is built on the first call and
+	 * shared by later calls and by every Matcher.
+	 * @return The CompiledDFA for this DFA
 	 */
-	private ArrayList<ArrayList<DFANode>> initializePartitionSets(DFANode[] states) {
-		ArrayList<DFANode> acceptingPartition = new ArrayList<>();
-		ArrayList<DFANode> nonacceptingPartition = new ArrayList<>();
-		
-		acceptingPartition.addAll(Arrays.asList(states).stream()
-				.filter(s -> s.isAccepting())
-				.collect(Collectors.toList()));
-		nonacceptingPartition.addAll(Arrays.asList(states).stream()
-				.filter(s -> !s.isAccepting())
-				.collect(Collectors.toList()));
-		
-		ArrayList<ArrayList<DFANode>> partitions = new ArrayList<>();
-		partitions.add(nonacceptingPartition);
-		partitions.add(acceptingPartition);
-		
-		return partitions;
+	public CompiledDFA compile() {
+		if(this.compiled == null) {
+			this.compiled = new CompiledDFA(this);
+		}
+		return this.compiled;
 	}
 	
 	/**
-	 * Filter a list of DFANodes based on if their transition on 'c' reaches any
-	 * of the nodes in 'toReach'
-	 * @param filterFrom The list of DFANodes to filter
-	 * @param toReach The goal states to be reached by the transition on 'c'
-	 * @param c The transition character
-	 * @return A new list of filtered DFANodes
+	 * Create a streaming Matcher over this DFA.
+	 * @return A new Matcher in the initial state
 	 */
-	private ArrayList<DFANode> filterCanReach(List<DFANode> filterFrom, ArrayList<DFANode> toReach, char c) {
-		return (ArrayList<DFANode>) filterFrom.stream()
-				.filter(s -> toReach.contains(s.applyTransition(c)))
-				.collect(Collectors.toList());
+	public Matcher matcher() {
+		return new Matcher(this.compile());
 	}
 	
 	/**
-	 * Find the intersection of two lists of DFANodes
-	 * @param a The first list of DFANodes
-	 * @param b The second list of DFANodes
-	 * @return A new list of DFANodes
+	 * Get a Searcher which finds this DFA's matches inside longer text.  It
+	 * is built on the first call and shared by later calls.
+	 * @return The Searcher for this DFA
 	 */
-	private ArrayList<DFANode> intersect(ArrayList<DFANode> a, ArrayList<DFANode> b) {
-		ArrayList<DFANode> intersection = new ArrayList<>();
-		for(DFANode check : a) {
-			if(b.contains(check)) {
-				intersection.add(check);
-			}
+	public Searcher searcher() {
+		if(this.searcher == null) {
+			this.searcher = new Searcher(this.compile());
 		}
-		return intersection;
+		return this.searcher;
 	}
+
+	public DFANode[] getStates() { return this.states; }
+	public DFANode[] getAcceptingStates() { return this.acceptingStates; }
+	public DFANode getInitialState() { return this.initialState; }
+	public char[] getSigma() { return this.sigma; }
 	
 	/**
-	 * Find 'from'\'toSubtract' (aka 'from'-'toSubtract')
-	 * @param from The list to subtract from
-	 * @param toSubtract The list to be subtracted
-	 * @return A new list of DFANodes
+	 * Initialize the 'P' set of Hopcroft's algorithm.  States are partitioned
+	 * based on whether or not they are accepting.
+	 * @param numStates The number of states to partition
+	 * @param accepting Whether each state is accepting
+	 * @return The initial partition of every state
 	 */
-	private ArrayList<DFANode> subtractSet(ArrayList<DFANode> from, ArrayList<DFANode> toSubtract) {
-		ArrayList<DFANode> subtraction = new ArrayList<>();
-		for(DFANode check : from) {
-			if(!toSubtract.contains(check)) {
-				subtraction.add(check);
-			}
+	private int[] initializePartitionSets(int numStates, boolean[] accepting) {
+		int[] partitions = new int[numStates];
+		for(int state = 0; state < numStates; state++) {
+			partitions[state] = accepting[state] ? 1 : 0;
 		}
-		return subtraction;
+		return partitions;
 	}
 	
 }
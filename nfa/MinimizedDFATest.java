@@ -0,0 +1,109 @@
+package nfa;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class MinimizedDFATest {
+	
+	// States 1 and 2 are equivalent, as are 3 and 4
+	private static final String DFA_REDUNDANT = 
+			"5\n" +
+			"Sigma:     a     b\n" +
+			"------------------\n" +
+			"    0:     1     2\n" +
+			"    1:     3     0\n" +
+			"    2:     4     0\n" +
+			"    3:     3     3\n" +
+			"    4:     4     4\n" +
+			"------------------\n" +
+			"0: Initial State\n" +
+			"3,4: Accepting State(s)\n";
+	
+	@Test
+	public void mergesEquivalentStates() {
+		DFA dfa = new DFA(DFA_REDUNDANT);
+		MinimizedDFA mini = dfa.minimize();
+		
+		assertEquals(3, mini.getStates().length);
+		for(String input : new String[] { "", "a", "aa", "ab", "aba", "abaa", "ba", "bab", "aab" }) {
+			assertEquals(input, dfa.testInput(input), mini.testInput(input));
+		}
+	}
+	
+	@Test
+	public void partitionsAreNumberedByLowestState() {
+		int[] transitions = new int[] { 1, 2, 3, 0, 4, 0, 3, 3, 4, 4 };
+		int[] initialClasses = new int[] { 0, 0, 0, 1, 1 };
+		
+		int[] partitions = HopcroftMinimizer.minimize(transitions, 5, 2, initialClasses);
+		
+		assertArrayEquals(new int[] { 0, 1, 1, 2, 2 }, partitions);
+	}
+	
+	@Test
+	public void modularCounterCollapses() {
+		int numStates = 999;
+		int[] transitions = new int[numStates];
+		int[] initialClasses = new int[numStates];
+		for(int i = 0; i < numStates; i++) {
+			transitions[i] = (i + 1) % numStates;
+			initialClasses[i] = i % 3 == 0 ? 1 : 0;
+		}
+		
+		int[] partitions = HopcroftMinimizer.minimize(transitions, numStates, 1, initialClasses);
+		
+		assertEquals(3, HopcroftMinimizer.countBlocks(partitions));
+	}
+	
+	@Test
+	public void mooreMatchesHopcroft() {
+		for(long seed = 0; seed < 10; seed++) {
+			CompiledDFA dfa = new DFA(AutomatonGenerator.randomDFA(200, 2, 0.3, seed)).compile();
+			int numStates = dfa.getNumStates();
+			
+			int[] transitions = dfa.getSymbolTransitions();
+			int[] initialClasses = new int[numStates];
+			for(int i = 0; i < numStates; i++) {
+				initialClasses[i] = dfa.isAccepting(i) ? 1 : 0;
+			}
+			
+			assertArrayEquals(HopcroftMinimizer.minimize(transitions, numStates, 2, initialClasses),
+					MooreMinimizer.minimize(transitions, numStates, 2, initialClasses, 4));
+		}
+	}
+	
+	@Test
+	public void mooreModularCounterCollapses() {
+		int numStates = 999;
+		int[] transitions = new int[numStates];
+		int[] initialClasses = new int[numStates];
+		for(int i = 0; i < numStates; i++) {
+			transitions[i] = (i + 1) % numStates;
+			initialClasses[i] = i % 3 == 0 ? 1 : 0;
+		}
+		
+		int[] partitions = MooreMinimizer.minimize(transitions, numStates, 1, initialClasses, 4);
+		
+		assertEquals(3, HopcroftMinimizer.countBlocks(partitions));
+	}
+	
+	@Test
+	public void parallelMinimizeGivesSameDFA() {
+		DFA dfa = new DFA(new NFA(AutomatonGenerator.kthFromEndNFA(6)));
+		
+		assertEquals(dfa.minimize().toString(), dfa.minimize(4).toString());
+		assertEquals(new DFA(DFA_REDUNDANT).minimize().toString(), new DFA(DFA_REDUNDANT).minimize(2).toString());
+	}
+	
+	@Test
+	public void minimizesNFAWithoutDFA() {
+		for(long seed = 0; seed < 10; seed++) {
+			NFA nfa = new NFA(AutomatonGenerator.randomNFA(15, 3, 0.4, 0.3, 0.2, seed));
+			
+			assertEquals(new DFA(nfa).minimize().toString(), new MinimizedDFA(nfa).toString());
+		}
+		NFA blowUp = new NFA(AutomatonGenerator.kthFromEndNFA(7));
+		assertEquals(128, new MinimizedDFA(blowUp).getStates().length);
+	}
+	
+}
@@ -0,0 +1,212 @@
+package nfa;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * MooreMinimizer finds the same partition as HopcroftMinimizer with Moore's
+ * round-based refinement, which parallelizes well.  In every round the
+ * signature of each state is its own block followed by the blocks of its
+ * successors, and states with equal signatures form the blocks of the next
+ * round.  Refinement stops when a round doesn't increase the number of
+ * blocks.
+ * Blocks are named by the lowest state in them, so each round is independent
+ * of thread scheduling.  Within a round, states are inserted into an
+ * open-addressing table of signatures in parallel; a slot is claimed with a
+ * compare-and-set and keeps the lowest state with its signature.
+ * A round costs O(n * k), but the number of rounds can be as large as the
+ * number of states, for example on a long chain of states, where
+ * HopcroftMinimizer is the better choice.
+ * @author mjoer
+ */
+public class MooreMinimizer {
+
+	private static final int CHUNK_SIZE = 4096;
+
+	private MooreMinimizer() {}
+
+	/**
+	 * Compute the coarsest partition of the states which respects the initial
+	 * classes and the transitions, on a pool of worker threads.  The result is
+	 * the same as HopcroftMinimizer.minimize.
+	 * @param transitions The transition table, indexed by (state * numSymbols + symbol)
+	 * @param numStates The number of states
+	 * @param numSymbols The number of symbols
+	 * @param initialClasses The initial class of every state
+	 * @param parallelism The number of worker threads
+	 * @return The block of every state, numbered in order of the lowest state
+	 */
+	public static int[] minimize(int[] transitions, int numStates, int numSymbols, int[] initialClasses, int parallelism) {
+		if(parallelism < 1)
+			throw new IllegalArgumentException("parallelism must be at least 1, got " + parallelism);
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			return MooreMinimizer.minimize(transitions, numStates, numSymbols, initialClasses, pool);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	static int[] minimize(int[] transitions, int numStates, int numSymbols, int[] initialClasses, ForkJoinPool pool) {
+		// Name every initial class by its lowest state
+		int[] blockOf = new int[numStates];
+		int numBlocks = HopcroftMinimizer.numberClasses(initialClasses, blockOf);
+		int initialBlocks = numBlocks;
+		int[] lowest = new int[numBlocks];
+		for(int state = numStates - 1; state >= 0; state--) {
+			lowest[blockOf[state]] = state;
+		}
+		for(int state = 0; state < numStates; state++) {
+			blockOf[state] = lowest[blockOf[state]];
+		}
+
+		int[] next = new int[numStates];
+		int[] slotOf = new int[numStates];
+		while(numStates > 0) {
+			Round round = new Round(transitions, numSymbols, blockOf, next, slotOf);
+			pool.invoke(new RoundRange(round, false, 0, numStates));
+			pool.invoke(new RoundRange(round, true, 0, numStates));
+
+			int[] swap = blockOf;
+			blockOf = next;
+			next = swap;
+			int newBlocks = round.signatures.get();
+			if(newBlocks == numBlocks)
+				break;
+			numBlocks = newBlocks;
+		}
+
+		Metrics.get().blocksSplit(numBlocks - initialBlocks);
+		return HopcroftMinimizer.renumberByLowestState(blockOf, numStates);
+	}
+
+	/**
+	 * The shared state of one refinement round.  blockOf is only read during
+	 * the round, and each state's entries of next and slotOf are only written
+	 * by the task that owns the state.
+	 */
+	private static class Round {
+		private final int[] transitions;
+		private final int numSymbols;
+		private final int[] blockOf;
+		private final int[] next;
+		private final int[] slotOf;
+		// Each slot holds (lowest state with the signature + 1), or 0 if empty
+		private final AtomicIntegerArray table;
+		private final int mask;
+		private final AtomicInteger signatures = new AtomicInteger();
+
+		private Round(int[] transitions, int numSymbols, int[] blockOf, int[] next, int[] slotOf) {
+			this.transitions = transitions;
+			this.numSymbols = numSymbols;
+			this.blockOf = blockOf;
+			this.next = next;
+			this.slotOf = slotOf;
+			// At most half full, so probe sequences stay short
+			int capacity = Integer.highestOneBit(Math.max(1, Math.min(blockOf.length, 1 << 29)) * 2 - 1) << 1;
+			this.table = new AtomicIntegerArray(capacity);
+			this.mask = capacity - 1;
+		}
+
+		/**
+		 * Find or claim the slot of a state's signature, and make sure the
+		 * slot holds the lowest state seen with it.
+		 */
+		private void insert(int state) {
+			int slot = (int) this.hash(state) & this.mask;
+			while(true) {
+				int entry = this.table.get(slot);
+				if(entry == 0) {
+					if(this.table.compareAndSet(slot, 0, state + 1)) {
+						this.signatures.incrementAndGet();
+						break;
+					}
+					// Another state claimed the slot first, so look at it again
+					continue;
+				}
+				if(this.sameSignature(entry - 1, state)) {
+					while(state < entry - 1 && !this.table.compareAndSet(slot, entry, state + 1)) {
+						entry = this.table.get(slot);
+					}
+					break;
+				}
+				slot = (slot + 1) & this.mask;
+			}
+			this.slotOf[state] = slot;
+		}
+
+		/**
+		 * Name the next block of a state after the lowest state with its
+		 * signature.  Every state must have been inserted.
+		 */
+		private void assign(int state) {
+			this.next[state] = this.table.get(this.slotOf[state]) - 1;
+		}
+
+		private long hash(int state) {
+			long h = this.blockOf[state];
+			int row = state * this.numSymbols;
+			for(int a = 0; a < this.numSymbols; a++) {
+				h = h * 0x9E3779B97F4A7C15L + this.blockOf[this.transitions[row + a]];
+			}
+			h ^= h >>> 33;
+			h *= 0xFF51AFD7ED558CCDL;
+			h ^= h >>> 33;
+			return h;
+		}
+
+		private boolean sameSignature(int s, int t) {
+			if(this.blockOf[s] != this.blockOf[t])
+				return false;
+			int rowS = s * this.numSymbols;
+			int rowT = t * this.numSymbols;
+			for(int a = 0; a < this.numSymbols; a++) {
+				if(this.blockOf[this.transitions[rowS + a]] != this.blockOf[this.transitions[rowT + a]])
+					return false;
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Inserts or assigns a range of states, splitting it in half until it is
+	 * no larger than CHUNK_SIZE.
+	 */
+	private static class RoundRange extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Round round;
+		private final boolean assign;
+		private final int from;
+		private final int to;
+
+		private RoundRange(Round round, boolean assign, int from, int to) {
+			this.round = round;
+			this.assign = assign;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if(this.to - this.from <= CHUNK_SIZE) {
+				for(int state = this.from; state < this.to; state++) {
+					if(this.assign) {
+						this.round.assign(state);
+					} else {
+						this.round.insert(state);
+					}
+				}
+				return;
+			}
+			int middle = (this.from + this.to) >>> 1;
+			ForkJoinTask.invokeAll(
+					new RoundRange(this.round, this.assign, this.from, middle),
+					new RoundRange(this.round, this.assign, middle, this.to));
+		}
+	}
+
+}
@@ -0,0 +1,277 @@
+package nfa;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * A MultiPatternDFA runs many patterns over an input in a single pass.  It is
+ * the product of the minimal DFAs of the patterns: each of its states stands
+ * for the set of states the patterns would be in, and is labelled with the
+ * set of patterns which accept there.  The product is then minimized with
+ * states split by their set of patterns, rather than just by whether they
+ * accept, so it still reports exactly which patterns match.
+ * <p>
+ * Sigma is the union of the patterns' alphabets.  A pattern rejects as soon as
+ * it reads a character outside its own alphabet, and the product rejects every
+ * pattern on a character outside the union.
+ * @author mjoer
+ */
+public class MultiPatternDFA implements InputMatcher {
+
+	private final int numPatterns;
+	private final char[] sigma;
+	// Maps characters to their class
+	private final int[] classIndex;
+	private final int numClasses;
+	private final int numStates;
+	// Indexed by (state * classes + class).  State 0 is the initial state.
+	private final int[] transitions;
+	private final int[] patternSetOf;
+	private final BitSet[] patternSets;
+
+	/**
+	 * Combine the patterns of several NFAs.  Pattern i is nfas.get(i).
+	 * @param nfas The patterns
+	 * @return The combined automaton
+	 */
+	public static MultiPatternDFA ofNFAs(List<NFA> nfas) {
+		List<CompiledDFA> patterns = new ArrayList<>(nfas.size());
+		for(NFA nfa : nfas) {
+			patterns.add(new MinimizedDFA(nfa).compile());
+		}
+		return new MultiPatternDFA(patterns);
+	}
+
+	/**
+	 * Combine the patterns of several DFAs.  Pattern i is dfas.get(i).
+	 * @param dfas The patterns
+	 * @return The combined automaton
+	 */
+	public static MultiPatternDFA ofDFAs(List<DFA> dfas) {
+		List<CompiledDFA> patterns = new ArrayList<>(dfas.size());
+		for(DFA dfa : dfas) {
+			patterns.add(dfa.minimize().compile());
+		}
+		return new MultiPatternDFA(patterns);
+	}
+
+	/**
+	 * Combine several compiled automata.  They should be minimal, since the
+	 * product of n automata can have as many states as the product of their
+	 * sizes.
+	 * @param patterns The patterns.  Pattern i is patterns.get(i).
+	 */
+	public MultiPatternDFA(List<CompiledDFA> patterns) {
+		long start = System.nanoTime();
+		MetricsListener metrics = Metrics.get();
+		this.numPatterns = patterns.size();
+		this.sigma = MultiPatternDFA.unionOfSigmas(patterns);
+
+		// Lay the patterns' states out one after another, each pattern
+		// starting at its offset, in one table over the union of the
+		// alphabets.  A product state is then a sorted set of global states,
+		// at most one per pattern, and the classes of this table are classes
+		// of the product as well.
+		int[] offsets = new int[this.numPatterns + 1];
+		for(int i = 0; i < this.numPatterns; i++) {
+			offsets[i + 1] = offsets[i] + patterns.get(i).getNumStates();
+		}
+		int globalStates = offsets[this.numPatterns];
+		int[] global = new int[globalStates * this.sigma.length];
+		int[] patternOf = new int[globalStates];
+		boolean[] globalAccepting = new boolean[globalStates];
+		for(int i = 0; i < this.numPatterns; i++) {
+			CompiledDFA pattern = patterns.get(i);
+			for(int state = 0; state < pattern.getNumStates(); state++) {
+				int g = offsets[i] + state;
+				patternOf[g] = i;
+				globalAccepting[g] = pattern.isAccepting(state);
+				for(int symbol = 0; symbol < this.sigma.length; symbol++) {
+					int target = pattern.step(state, this.sigma[symbol]);
+					global[g * this.sigma.length + symbol] = target == CompiledDFA.REJECT ? CompiledDFA.REJECT : offsets[i] + target;
+				}
+			}
+		}
+		SymbolClasses globalClasses = SymbolClasses.of(global, globalStates, this.sigma.length);
+		int numClasses = globalClasses.getNumClasses();
+		global = globalClasses.compress(global, globalStates);
+
+		SubsetTable products = new SubsetTable();
+		int[] initial = new int[this.numPatterns];
+		for(int i = 0; i < this.numPatterns; i++) {
+			initial[i] = offsets[i] + patterns.get(i).getInitialState();
+		}
+		products.intern(initial, initial.length);
+		metrics.subsetDiscovered(initial.length);
+
+		// Number the distinct sets of accepting patterns, with the empty set first
+		HashMap<BitSet, Integer> setNumbers = new HashMap<>();
+		List<BitSet> sets = new ArrayList<>();
+		setNumbers.put(new BitSet(), 0);
+		sets.add(new BitSet());
+
+		int[] transitions = new int[64 * Math.max(1, numClasses)];
+		int[] setOf = new int[64];
+		int[] scratch = new int[this.numPatterns];
+		for(int state = 0; state < products.size(); state++) {
+			if((state + 1) * numClasses > transitions.length) {
+				transitions = Arrays.copyOf(transitions, transitions.length * 2);
+			}
+			if(state == setOf.length) {
+				setOf = Arrays.copyOf(setOf, setOf.length * 2);
+			}
+
+			BitSet accepted = new BitSet(this.numPatterns);
+			for(int i = products.start(state); i < products.end(state); i++) {
+				int g = products.element(i);
+				if(globalAccepting[g]) {
+					accepted.set(patternOf[g]);
+				}
+			}
+			Integer number = setNumbers.get(accepted);
+			if(number == null) {
+				number = sets.size();
+				setNumbers.put(accepted, number);
+				sets.add(accepted);
+			}
+			setOf[state] = number;
+
+			for(int symbolClass = 0; symbolClass < numClasses; symbolClass++) {
+				// Patterns are in offset order, so the targets stay sorted
+				int size = 0;
+				for(int i = products.start(state); i < products.end(state); i++) {
+					int target = global[products.element(i) * numClasses + symbolClass];
+					if(target != CompiledDFA.REJECT) {
+						scratch[size++] = target;
+					}
+				}
+				int known = products.size();
+				transitions[state * numClasses + symbolClass] = products.intern(scratch, size);
+				if(products.size() > known) {
+					metrics.subsetDiscovered(size);
+				}
+			}
+		}
+		int productStates = products.size();
+		setOf = Arrays.copyOf(setOf, productStates);
+		products = null;
+		global = null;
+		Metrics.phaseCompleted(Metrics.DETERMINIZE, start);
+
+		// Only states which accept the same patterns may be merged
+		start = System.nanoTime();
+		int[] blockOf = HopcroftMinimizer.minimize(transitions, productStates, numClasses, setOf);
+		int numBlocks = HopcroftMinimizer.countBlocks(blockOf);
+		int[] minimal = new int[numBlocks * numClasses];
+		int[] minimalSetOf = new int[numBlocks];
+		boolean[] built = new boolean[numBlocks];
+		for(int state = 0; state < productStates; state++) {
+			int block = blockOf[state];
+			if(built[block])
+				continue;
+			built[block] = true;
+			minimalSetOf[block] = setOf[state];
+			for(int symbolClass = 0; symbolClass < numClasses; symbolClass++) {
+				minimal[block * numClasses + symbolClass] = blockOf[transitions[state * numClasses + symbolClass]];
+			}
+		}
+
+		this.numClasses = numClasses;
+		this.classIndex = CompiledDFA.buildClassIndex(this.sigma, globalClasses);
+		this.numStates = numBlocks;
+		this.transitions = minimal;
+		this.patternSetOf = minimalSetOf;
+		this.patternSets = sets.toArray(new BitSet[sets.size()]);
+		Metrics.phaseCompleted(Metrics.MINIMIZE, start);
+	}
+
+	private static char[] unionOfSigmas(List<CompiledDFA> patterns) {
+		StringBuilder union = new StringBuilder();
+		for(CompiledDFA pattern : patterns) {
+			for(char c : pattern.getSigma()) {
+				if(union.indexOf(String.valueOf(c)) < 0) {
+					union.append(c);
+				}
+			}
+		}
+		return union.toString().toCharArray();
+	}
+
+	/**
+	 * Find every pattern which accepts an input.
+	 * @param input The string to test
+	 * @return The numbers of the patterns which accept the input
+	 */
+	public BitSet matchingPatterns(CharSequence input) {
+		int state = this.finalState(input);
+		if(state == CompiledDFA.REJECT)
+			return new BitSet();
+		return (BitSet) this.patternSets[this.patternSetOf[state]].clone();
+	}
+
+	/**
+	 * Test whether any pattern accepts an input.
+	 * @param input The string to test
+	 * @return True if at least one pattern accepts the input
+	 */
+	@Override
+	public boolean matches(CharSequence input) {
+		int state = this.finalState(input);
+		return state != CompiledDFA.REJECT && this.patternSetOf[state] != 0;
+	}
+
+	/**
+	 * @return The state after reading the input, or REJECT if it holds a
+	 * 		character outside sigma
+	 */
+	private int finalState(CharSequence input) {
+		int state = 0;
+		for(int i = 0; i < input.length(); i++) {
+			char c = input.charAt(i);
+			if(c >= this.classIndex.length)
+				return CompiledDFA.REJECT;
+			int symbolClass = this.classIndex[c];
+			if(symbolClass == CompiledDFA.REJECT)
+				return CompiledDFA.REJECT;
+			state = this.transitions[state * this.numClasses + symbolClass];
+		}
+		return state;
+	}
+
+	public int getNumPatterns() { return this.numPatterns; }
+	public int getNumStates() { return this.numStates; }
+	public char[] getSigma() { return this.sigma.clone(); }
+
+	/**
+	 * Run every input through every NFA file at once and print the files which
+	 * accept each input.
+	 * Usage: MultiPatternDFA inputFile nfaFile...
+	 */
+	public static void main(String[] args) throws IOException {
+		if(args.length < 2) {
+			System.out.println("MultiPatternDFA requires at least (2) arguments");
+			return;
+		}
+
+		String[] testInputs = Reader.readIntoLines(args[0]);
+		List<NFA> nfas = new ArrayList<>();
+		for(int i = 1; i < args.length; i++) {
+			nfas.add(AutomatonParser.readNFA(Paths.get(args[i])));
+		}
+		MultiPatternDFA patterns = MultiPatternDFA.ofNFAs(nfas);
+
+		for(String input : testInputs) {
+			BitSet matching = patterns.matchingPatterns(input);
+			StringBuilder sb = new StringBuilder(input).append(":");
+			for(int i = matching.nextSetBit(0); i >= 0; i = matching.nextSetBit(i + 1)) {
+				sb.append(" ").append(args[i + 1]);
+			}
+			System.out.println(sb.toString());
+		}
+	}
+
+}
@@ -0,0 +1,85 @@
+package nfa;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class MultiPatternDFATest {
+
+	private static final String ENDS_IN_C =
+			"2\n" +
+			"a c \n" +
+			"0: {0} {0,1} {} \n" +
+			"1: {} {} {} \n" +
+			"0\n" +
+			"{1}\n";
+
+	@Test
+	public void reportsEveryMatchingPattern() {
+		List<NFA> nfas = Arrays.asList(
+				new NFA(AutomatonGenerator.kthFromEndNFA(2)),
+				new NFA(AutomatonGenerator.kthFromEndNFA(3)),
+				new NFA(ENDS_IN_C));
+		MultiPatternDFA patterns = MultiPatternDFA.ofNFAs(nfas);
+
+		assertEquals(3, patterns.getNumPatterns());
+		assertEquals(bits(0), patterns.matchingPatterns("bbab"));
+		assertEquals(bits(0, 1), patterns.matchingPatterns("aab"));
+		assertEquals(bits(2), patterns.matchingPatterns("ac"));
+		assertEquals(bits(), patterns.matchingPatterns("bbb"));
+		assertEquals(bits(), patterns.matchingPatterns("xyz"));
+		assertTrue(patterns.matches("aab"));
+		assertFalse(patterns.matches("bbb"));
+	}
+
+	@Test
+	public void agreesWithEachPattern() {
+		Random random = new Random(1);
+		for(long seed = 0; seed < 5; seed++) {
+			List<DFA> dfas = new ArrayList<>();
+			for(int i = 0; i < 4; i++) {
+				dfas.add(new DFA(AutomatonGenerator.randomDFA(12, 2 + i % 2, 0.3, seed * 10 + i)));
+			}
+			MultiPatternDFA patterns = MultiPatternDFA.ofDFAs(dfas);
+
+			char[] sigma = patterns.getSigma();
+			for(int n = 0; n < 200; n++) {
+				char[] input = new char[random.nextInt(8)];
+				for(int c = 0; c < input.length; c++) {
+					input[c] = sigma[random.nextInt(sigma.length)];
+				}
+				String s = new String(input);
+				BitSet expected = new BitSet();
+				for(int i = 0; i < dfas.size(); i++) {
+					if(dfas.get(i).testInput(s)) {
+						expected.set(i);
+					}
+				}
+				assertEquals(s, expected, patterns.matchingPatterns(s));
+			}
+		}
+	}
+
+	@Test
+	public void keepsPatternsWithTheSameLanguageApart() {
+		NFA nfa = new NFA(ENDS_IN_C);
+		MultiPatternDFA patterns = MultiPatternDFA.ofNFAs(Arrays.asList(nfa, nfa));
+
+		assertEquals(2, patterns.getNumStates());
+		assertEquals(bits(0, 1), patterns.matchingPatterns("aac"));
+	}
+
+	private static BitSet bits(int ... patterns) {
+		BitSet bits = new BitSet();
+		for(int pattern : patterns) {
+			bits.set(pattern);
+		}
+		return bits;
+	}
+
+}
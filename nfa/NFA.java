@@ -1,109 +1,102 @@
 package nfa;
-import java.util.Arrays;
-import java.util.stream.Collectors;
+import java.io.IOException;
+import java.nio.file.Paths;
 
 public class NFA {
 	
-	private final char LAMBDA = '^';
+	static final char LAMBDA = '^';
 	
 	private NFANode[] states;
 	private NFANode[] acceptingStates;
 	private NFANode initialState;
 	private char[] sigma;
+	private LambdaClosureTable lambdaClosures;
 	
 	public NFA(String nfaFileContents) {
-		
-		String[] lines = nfaFileContents.split("\n");
-		
-		int numStates = Integer.parseInt(lines[0]);
-
-		//Initialize sigma
-		String sigmaString = Reader.ignoreWhitespace(lines[1]);
-		this.sigma = new char[sigmaString.length() + 1];
-
-		for(int i = 0; i < sigmaString.length(); i++) {
-			this.sigma[i] = sigmaString.charAt(i);
-		}
-		this.sigma[sigmaString.length()] = LAMBDA;
-		
-		//initialize all of the states in the DFA
-		this.states = new NFANode[numStates];
-		for(int stateNum = 0; stateNum < numStates; stateNum++) {
+		this(AutomatonParser.nfaTables(nfaFileContents));
+	}
+	
+	/**
+	 * Create the states of an NFA from the tables read by AutomatonParser.
+	 * Each state gets all of its targets on a symbol at once.
+	 */
+	NFA(AutomatonParser.NFATables tables) {
+		this.sigma = tables.sigma;
+		
+		//initialize all of the states in the NFA
+		this.states = new NFANode[tables.numStates];
+		for(int stateNum = 0; stateNum < tables.numStates; stateNum++) {
 			this.states[stateNum] = new NFANode();
 			this.states[stateNum].setLabel(stateNum + "");
+			this.states[stateNum].setId(stateNum);
 		}
 		
 		//Add the transitions to each state
 		for(int currentState = 0; currentState < this.states.length; currentState++) {
-			String currentStateString = lines[2 + currentState];
-			int[][] transitionInts = getTransitionsForNode(currentStateString);
-			
-			for(int transition = 0; transition < transitionInts.length; transition++) {
-				for(int t = 0; t < transitionInts[transition].length; t++) {
-					int currentTransition = transitionInts[transition][t];
-					if(currentTransition != -1) {
-						this.states[currentState].addTransition(this.sigma[transition], this.states[currentTransition]);
-					}
+			int row = currentState * this.sigma.length;
+			for(int symbol = 0; symbol < this.sigma.length; symbol++) {
+				int from = tables.offsets[row + symbol];
+				int to = tables.offsets[row + symbol + 1];
+				if(from == to)
+					continue;
+				NFANode[] next = new NFANode[to - from];
+				for(int t = from; t < to; t++) {
+					next[t - from] = this.states[tables.targets[t]];
 				}
+				this.states[currentState].setTransitions(this.sigma[symbol], next);
 			}
 		}
 		
-		//Set the initial state
-		int initStateNum = Integer.parseInt(lines[2 + numStates]);
-		this.initialState = this.states[initStateNum];
-		
-		//Set the accepting states
-		String[] acceptingStates = Reader.match(lines[2 + numStates + 1], "\\D");
-		this.acceptingStates = new NFANode[acceptingStates.length];
-		int count = 0;
-		for(String state : acceptingStates) {
-			if(!state.equals("")) {
-				int stateNum = Integer.parseInt(state);
-				this.states[stateNum].setAccepting(true);
-				this.acceptingStates[count] = this.states[stateNum];
-				count++;
-			}
+		this.computeLambdaClosures();
+		
+		this.initialState = this.states[tables.initialState];
+		
+		this.acceptingStates = new NFANode[tables.accepting.length];
+		for(int i = 0; i < tables.accepting.length; i++) {
+			this.states[tables.accepting[i]].setAccepting(true);
+			this.acceptingStates[i] = this.states[tables.accepting[i]];
 		}
 	}
 	
-	private int[][] getTransitionsForNode(String transitionString) {
-		String[] transitionStates = Reader.tokenize(
-				Reader.ignoreWhitespace(
-						transitionString.substring(transitionString.indexOf(":") + 1)
-				), "{");
-		transitionStates = Arrays.asList(transitionStates)
-				.stream()
-				.map(st -> st.replace("}", ""))
-				.collect(Collectors.toList())
-				.toArray(new String[transitionStates.length]);
-		
-		int[][] transitions = new int[transitionStates.length][];
-		
-		for (int currentTransition = 0; currentTransition < transitionStates.length; currentTransition++) {
-			String transString = transitionStates[currentTransition];
-			if (transString.equals("")) {
-				transitions[currentTransition] = new int[] { -1 };
-			} else {
-				String[] npTransitions = Reader.tokenize(transString, ",");
-				Integer[] newTransitions = Arrays.asList(npTransitions)
-						.stream()
-						.map(Integer::parseInt)
-						.collect(Collectors.toList())
-						.toArray(new Integer[npTransitions.length]);
-				
-				int[] ntInts = new int[newTransitions.length];
-				for(int i = 0; i < ntInts.length; i++)
-					ntInts[i] = (int) newTransitions[i];
-				
-				transitions[currentTransition] = ntInts;
+	/**
+	 * Compute the lambda closure of every state once and hand each node its
+	 * closure.  Nodes whose closures are the same (because their lambda
+	 * transitions form a cycle) share the same array.
+	 */
+	private void computeLambdaClosures() {
+		long start = System.nanoTime();
+		this.lambdaClosures = new LambdaClosureTable(this.states);
+		NFANode[][] componentClosures = new NFANode[this.lambdaClosures.getNumComponents()][];
+		
+		for(NFANode state : this.states) {
+			int component = this.lambdaClosures.getComponent(state.getId());
+			if(componentClosures[component] == null) {
+				StateSet closure = this.lambdaClosures.getClosure(state.getId());
+				componentClosures[component] = new NFANode[closure.size()];
+				for(int i = 0; i < closure.size(); i++) {
+					componentClosures[component][i] = this.states[closure.get(i)];
+				}
 			}
+			state.setLambdaClosure(componentClosures[component], this.lambdaClosures);
 		}
-		
-		return transitions;
+		Metrics.get().lambdaClosuresComputed(componentClosures.length);
+		Metrics.phaseCompleted(Metrics.LAMBDA_CLOSURES, start);
 	}
 	
 	public char[] getSigma() { return this.sigma; }
 	public NFANode getInitialState() { return this.initialState; }
+	/**
+	 * Get the lambda closures of every state.  If a lambda transition was
+	 * added to a state since they were computed, they are computed again.
+	 * @return The closures of the current transitions
+	 */
+	public LambdaClosureTable getLambdaClosures() {
+		if(this.lambdaClosures.isStale()) {
+			this.computeLambdaClosures();
+		}
+		return this.lambdaClosures;
+	}
+	public int getNumStates() { return this.states.length; }
 	
 	public NFANode getState(int num) {
 		if (num < 0 || num > this.states.length) 
@@ -176,32 +169,49 @@ public class NFA {
 		return sb.toString();
 	}
 	
-	public static void main(String[] args) {
+	public static void main(String[] args) throws IOException {
+		CommandLine commandLine = new CommandLine(args, "--save");
+		args = commandLine.getArguments();
+		
+		// With --timings every phase is measured and summarized at the end
+		MetricsRecorder recorder = null;
+		if(commandLine.hasOption("--timings")) {
+			recorder = new MetricsRecorder();
+			Metrics.set(recorder);
+		}
 		
 		if(args.length < 2) {
 			System.out.println("NFA requires (2) arguments");
 			return;
 		}
 		
-		String contents = Reader.readEntireFile(args[0]);
+		NFA nfa = AutomatonParser.readNFA(Paths.get(args[0]));
 		String[] testInputs = Reader.readIntoLines(args[1]);
 		
-		NFA nfa = new NFA(contents);
-		DFA dfa = new DFA(nfa);
+		// With --minimal-only the DFA is never built, so it isn't printed either
+		boolean minimalOnly = commandLine.hasOption("--minimal-only");
+		DFA dfa = minimalOnly ? null : new DFA(nfa);
+		MinimizedDFA minimized = minimalOnly ? new MinimizedDFA(nfa) : dfa.minimize();
 		
-		MinimizedDFA minimized = dfa.minimize();
+		if(commandLine.hasOption("--save")) {
+			CompiledDFAFormat.write(minimized.compile(), Paths.get(commandLine.getOption("--save")));
+		}
 		
 		if(args.length >= 3) {
 			int limit = Integer.parseInt(args[2]);
 			System.out.println(nfa.toPresentationString(limit));
-			System.out.println("\nTo DFA:\n");
-			System.out.println(dfa.toPresentationString(limit));
+			if(dfa != null) {
+				System.out.println("\nTo DFA:\n");
+				System.out.println(dfa.toPresentationString(limit));
+			}
 			System.out.println("\nMinimized DFA:\n");
 			System.out.println(minimized.toPresentationString(limit));
 		} else {
 			System.out.println(nfa.toString());
-			System.out.println("\nTo DFA:\n");
-			System.out.println(dfa.toString());
+			if(dfa != null) {
+				System.out.println("\nTo DFA:\n");
+				System.out.println(dfa.toString());
+			}
 			System.out.println("\nMinimized DFA:\n");
 			System.out.println(minimized.toString());
 		}
@@ -209,9 +219,22 @@ public class NFA {
 		
 		
 		System.out.println("The following strings are accepted:");
-		Arrays.asList(testInputs).stream()
-			.filter(i -> dfa.testInput(i))
-			.forEach(i -> System.out.println(i));
+		try(BatchMatcher batch = new BatchMatcher(minimized)) {
+			batch.acceptedStrings(testInputs)
+				.forEach(i -> System.out.println(i));
+		}
+		
+		// --verify needs the DFA, so it is skipped with --minimal-only
+		if(dfa != null && commandLine.hasOption("--verify")) {
+			String counterexample = LanguageChecks.equivalenceCounterexample(dfa.compile(), minimized.compile());
+			System.out.println(counterexample == null
+					? "The minimized DFA accepts the same language"
+					: "The minimized DFA differs on \"" + counterexample + "\"");
+		}
+		
+		if(recorder != null) {
+			recorder.printSummary(System.out);
+		}
 	}
 }
 
@@ -12,12 +12,17 @@ public class NFANode {
 	
 	private HashMap<Character, NFANode[]> transitions;
 	private String label;
+	private int id;
 	private boolean isAccepting;
+	private NFANode[] lambdaClosure;
+	// The table lambdaClosure came from, shared by every node of the NFA
+	private LambdaClosureTable closureTable;
 	
 	public NFANode() {
 		this.transitions = new HashMap<>();
 		this.transitions.put('^', new NFANode[] { this });
 		this.label = "";
+		this.id = -1;
 		this.isAccepting = false;
 	}
 	
@@ -36,17 +41,45 @@ public class NFANode {
 		} else {
 			this.transitions.put(sig, new NFANode[] { nextTransition });
 		}
+		if(sig == '^') {
+			this.dropLambdaClosures();
+		}
 	}
 	
+	/**
+	 * Set every node reachable via a symbol at once, replacing any existing
+	 * transition.  Unlike addTransition, the list is not copied for each node.
+	 * A lambda transition still includes this node, as it does on a new node.
+	 * @param sig The symbol of the transition
+	 * @param nextTransitions The nodes reachable via the symbol
+	 */
+	public void setTransitions(char sig, NFANode[] nextTransitions) {
+		if(sig == '^') {
+			NFANode[] withSelf = new NFANode[nextTransitions.length + 1];
+			withSelf[0] = this;
+			System.arraycopy(nextTransitions, 0, withSelf, 1, nextTransitions.length);
+			nextTransitions = withSelf;
+			this.dropLambdaClosures();
+		}
+		this.transitions.put(sig, nextTransitions);
+	}
+
 	/**
 	 * Computes the lambda closure of this node.  The lambda closure is the set of
 	 * nodes that can be reached with only lambda transitions.  The process is recursive,
 	 * so for all nodes that can be reached with a lambda closure from this node, their 
 	 * lambda closure must also be found.  The base case is when no new nodes are added
 	 * to the result set.
+	 * If the closure has been precomputed by the owning NFA, and no lambda
+	 * transition of the NFA has changed since, the precomputed array is
+	 * returned instead; it is shared with other nodes and must not be modified.
 	 * @return An array of NFANodes which can be reached by lambda transitions.
 	 */
 	public NFANode[] getLambdaClosure() {
+		if(this.lambdaClosure != null && !this.closureTable.isStale()) {
+			return this.lambdaClosure;
+		}
+		
 		ArrayList<NFANode> enclosedNodes = new ArrayList<>();
 		ArrayList<NFANode> candidateNodes = new ArrayList<>();
 		
@@ -69,9 +102,40 @@ public class NFANode {
 		return enclosedNodes.toArray(new NFANode[enclosedNodes.size()]);
 	}
 	
+	/**
+	 * Set the precomputed lambda closure of this node.  The closure is only
+	 * used while the table it came from is up to date.
+	 * @param closure Every node reachable from this node by lambda transitions
+	 * @param table The table of the owning NFA the closure was taken from
+	 */
+	void setLambdaClosure(NFANode[] closure, LambdaClosureTable table) {
+		this.lambdaClosure = closure;
+		this.closureTable = table;
+	}
+
+	/**
+	 * A new lambda transition can change the closure of any node which
+	 * reaches this one, not just this node's, so the whole table is marked
+	 * stale.
+	 */
+	private void dropLambdaClosures() {
+		if(this.closureTable != null) {
+			this.closureTable.markStale();
+		}
+		this.lambdaClosure = null;
+		this.closureTable = null;
+	}
+	
 	public String getLabel() { return this.label; }
 	public void setLabel(String l) { this.label = l; }
 	
+	/**
+	 * The ID of a node is its index in the states of the NFA that owns it.
+	 * It is used to build the canonical StateSet of a DFANode.
+	 */
+	public int getId() { return this.id; }
+	public void setId(int id) { this.id = id; }
+	
 	public boolean isAccepting() { return this.isAccepting; }
 	public void setAccepting(boolean a) { this.isAccepting = a; }
 	
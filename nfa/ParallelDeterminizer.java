@@ -0,0 +1,165 @@
+package nfa;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A ParallelDeterminizer runs subset construction on a ForkJoinPool.  The DFA
+ * is built one breadth-first level at a time: the transitions of every
+ * (state, symbol) pair in the frontier are computed in parallel, and each new
+ * subset is registered in a concurrent map keyed by its canonical StateSet, so
+ * a subset found by several workers at once still becomes a single state.
+ * States are then numbered in one pass over the frontier in (state, symbol)
+ * order, which is the order DFA(NFA) discovers them in, so the result is
+ * identical to the sequential DFA no matter how the work was scheduled.
+ * @author mjoer
+ */
+public class ParallelDeterminizer implements AutoCloseable {
+
+	public static final int DEFAULT_CHUNK_SIZE = 64;
+
+	private final ForkJoinPool pool;
+	private final int chunkSize;
+
+	public ParallelDeterminizer() {
+		this(Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Create a ParallelDeterminizer with its own pool of worker threads.
+	 * @param parallelism The number of worker threads
+	 * @param chunkSize The number of (state, symbol) pairs handed to a worker
+	 * 		at once.  A frontier with no more pairs than this is expanded on the
+	 * 		calling thread.
+	 */
+	public ParallelDeterminizer(int parallelism, int chunkSize) {
+		if(parallelism < 1)
+			throw new IllegalArgumentException("parallelism must be at least 1, got " + parallelism);
+		if(chunkSize < 1)
+			throw new IllegalArgumentException("chunkSize must be at least 1, got " + chunkSize);
+		this.pool = new ForkJoinPool(parallelism);
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Build the DFA of an NFA.
+	 * @param nfa The NFA to determinize
+	 * @return A DFA with the same states, in the same order, as new DFA(nfa)
+	 */
+	public DFA determinize(NFA nfa) {
+		long start = System.nanoTime();
+		MetricsListener metrics = Metrics.get();
+		// Get sigma from nfa, minus lambda
+		char[] sigma = Arrays.copyOfRange(nfa.getSigma(), 0, nfa.getSigma().length - 1);
+		// Only the representative of each class of symbols is followed
+		SymbolClasses classes = SymbolClasses.of(nfa);
+		char[] representatives = new char[classes.getNumClasses()];
+		for(int symbolClass = 0; symbolClass < representatives.length; symbolClass++) {
+			representatives[symbolClass] = sigma[classes.representative(symbolClass)];
+		}
+		ConcurrentHashMap<StateSet, DFANode> stateIndex = new ConcurrentHashMap<>();
+
+		DFANode initialState = DFANode.fromLambdaClosure(nfa.getInitialState());
+		initialState.setLabel("0");
+		stateIndex.put(initialState.getEnclosedSet(), initialState);
+		metrics.subsetDiscovered(initialState.getEnclosed().length);
+
+		ArrayList<DFANode> states = new ArrayList<>();
+		states.add(initialState);
+		DFANode[] frontier = new DFANode[] { initialState };
+		while(frontier.length > 0) {
+			DFANode[] targets = new DFANode[frontier.length * representatives.length];
+			ExpandRange expand = new ExpandRange(frontier, representatives, stateIndex, targets, 0, targets.length);
+			if(targets.length <= this.chunkSize) {
+				expand.compute();
+			} else {
+				this.pool.invoke(expand);
+			}
+
+			// A state is new the first time it is seen in (state, symbol)
+			// order, which is always on the representative of a class; only
+			// new states have no label yet
+			int firstNew = states.size();
+			for(int pair = 0; pair < targets.length; pair++) {
+				DFANode target = targets[pair];
+				if(target.getLabel() == null) {
+					target.setLabel(states.size() + "");
+					states.add(target);
+					metrics.subsetDiscovered(target.getEnclosed().length);
+				}
+			}
+			for(int i = 0; i < frontier.length; i++) {
+				for(int symbol = 0; symbol < sigma.length; symbol++) {
+					frontier[i].addTransition(sigma[symbol], targets[i * representatives.length + classes.classOf(symbol)]);
+				}
+			}
+			frontier = states.subList(firstNew, states.size()).toArray(new DFANode[states.size() - firstNew]);
+		}
+
+		DFA dfa = new DFA(sigma, states.toArray(new DFANode[states.size()]));
+		Metrics.phaseCompleted(Metrics.DETERMINIZE, start);
+		return dfa;
+	}
+
+	public int getParallelism() { return this.pool.getParallelism(); }
+	public int getChunkSize() { return this.chunkSize; }
+
+	/**
+	 * Shut down the worker threads of this ParallelDeterminizer.
+	 */
+	@Override
+	public void close() {
+		this.pool.shutdown();
+	}
+
+	/**
+	 * Computes the targets of a range of (state, symbol) pairs of the frontier,
+	 * splitting it in half until it is no larger than a chunk.  Pair p is state
+	 * p / symbols.length on symbol p % symbols.length, and its target is
+	 * written to targets[p], so every task writes to its own part of the array.
+	 */
+	private class ExpandRange extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final DFANode[] frontier;
+		private final char[] symbols;
+		private final ConcurrentHashMap<StateSet, DFANode> stateIndex;
+		private final DFANode[] targets;
+		private final int from;
+		private final int to;
+
+		private ExpandRange(DFANode[] frontier, char[] symbols, ConcurrentHashMap<StateSet, DFANode> stateIndex,
+				DFANode[] targets, int from, int to) {
+			this.frontier = frontier;
+			this.symbols = symbols;
+			this.stateIndex = stateIndex;
+			this.targets = targets;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if(this.to - this.from <= ParallelDeterminizer.this.chunkSize) {
+				for(int pair = this.from; pair < this.to; pair++) {
+					DFANode state = this.frontier[pair / this.symbols.length];
+					DFANode computed = state.computeTransition(this.symbols[pair % this.symbols.length]);
+					// Whichever worker registers a subset first wins, and the
+					// others use its node
+					DFANode existing = this.stateIndex.putIfAbsent(computed.getEnclosedSet(), computed);
+					this.targets[pair] = existing != null ? existing : computed;
+				}
+				return;
+			}
+			int middle = (this.from + this.to) >>> 1;
+			ForkJoinTask.invokeAll(
+					new ExpandRange(this.frontier, this.symbols, this.stateIndex, this.targets, this.from, middle),
+					new ExpandRange(this.frontier, this.symbols, this.stateIndex, this.targets, middle, this.to));
+		}
+	}
+
+}
@@ -0,0 +1,54 @@
+package nfa;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ParallelDeterminizerTest {
+
+	private static final String NFA_1 =
+			"5\n" +
+			"a b c \n" +
+			"0: {} {} {} {1,2,3} \n" +
+			"1: {4} {1} {1} {} \n" +
+			"2: {2} {4} {2} {} \n" +
+			"3: {3} {3} {4} {} \n" +
+			"4: {4} {4} {4} {} \n" +
+			"0\n" +
+			"{1,2,3}\n";
+
+	@Test
+	public void matchesSequentialDFA() {
+		NFA nfa = new NFA(NFA_1);
+		try(ParallelDeterminizer determinizer = new ParallelDeterminizer(4, 1)) {
+			assertEquals(new DFA(nfa).toString(), determinizer.determinize(nfa).toString());
+		}
+	}
+
+	@Test
+	public void numberingIsDeterministic() {
+		// A chunk size of 1 splits every frontier into as many tasks as possible
+		try(ParallelDeterminizer determinizer = new ParallelDeterminizer(8, 1)) {
+			for(long seed = 0; seed < 5; seed++) {
+				NFA nfa = new NFA(AutomatonGenerator.randomNFA(12, 3, 0.3, 0.3, 0.2, seed));
+				String sequential = new DFA(nfa).toString();
+				for(int run = 0; run < 3; run++) {
+					assertEquals(sequential, determinizer.determinize(nfa).toString());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void blowsUpLikeSequentialDFA() {
+		NFA nfa = new NFA(AutomatonGenerator.kthFromEndNFA(8));
+		try(ParallelDeterminizer determinizer = new ParallelDeterminizer()) {
+			DFA dfa = determinizer.determinize(nfa);
+
+			assertEquals(256, dfa.getStates().length);
+			assertSame(dfa.getStates()[0], dfa.getInitialState());
+			assertTrue(dfa.testInput("abbbbbbb"));
+			assertFalse(dfa.testInput("abbbbbbbb"));
+		}
+	}
+
+}
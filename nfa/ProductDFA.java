@@ -0,0 +1,291 @@
+package nfa;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * A ProductDFA combines two automata with a set operation, such as "accepted
+ * by A but not by B".  Its states are pairs of states of the two operands,
+ * and a pair, and its transitions, are only built when an input or a search
+ * reaches it, so only reachable pairs are ever stored rather than all
+ * |A| * |B| of them.
+ * <p>
+ * Sigma is the union of the operands' alphabets.  An operand which reads a
+ * character outside its own alphabet rejects from then on, and the product
+ * rejects any character outside the union.  A side in a state from which
+ * it can't accept any more, such as the empty subset DFA(NFA) builds, counts
+ * as rejected too.  A pair from which no input can be accepted, such as one
+ * where either side has rejected in an intersection, is marked dead so
+ * matching stops early.
+ * A ProductDFA keeps mutable state, so it should not be shared between
+ * threads.
+ * @author mjoer
+ */
+public class ProductDFA implements InputMatcher {
+
+	/**
+	 * How the acceptance of a pair follows from its two sides.
+	 */
+	public enum Operation {
+		INTERSECTION, UNION, DIFFERENCE, SYMMETRIC_DIFFERENCE;
+
+		boolean accepts(boolean left, boolean right) {
+			switch(this) {
+			case INTERSECTION: return left && right;
+			case UNION: return left || right;
+			case DIFFERENCE: return left && !right;
+			default: return left != right;
+			}
+		}
+	}
+
+	private static final int NOT_COMPUTED = -1;
+
+	private final Operation operation;
+	private final CompiledDFA left;
+	private final CompiledDFA right;
+	private final char[] sigma;
+	private final int[] symbolIndex;
+
+	// Pair p is (lefts[p], rights[p]); a side which has rejected or is in a
+	// dead state is REJECT
+	private int[] lefts = new int[64];
+	private int[] rights = new int[64];
+	private boolean[] accepting = new boolean[64];
+	private boolean[] dead = new boolean[64];
+	// Indexed by (pair * sigma + symbol), NOT_COMPUTED until first followed
+	private int[] next;
+	private int numPairs;
+	private final HashMap<Long, Integer> pairNumbers = new HashMap<>();
+
+	/**
+	 * @param operation The operation to apply
+	 * @param left The first operand
+	 * @param right The second operand
+	 */
+	public ProductDFA(Operation operation, CompiledDFA left, CompiledDFA right) {
+		this.operation = operation;
+		this.left = left;
+		this.right = right;
+
+		StringBuilder union = new StringBuilder(new String(left.getSigma()));
+		for(char c : right.getSigma()) {
+			if(union.indexOf(String.valueOf(c)) < 0) {
+				union.append(c);
+			}
+		}
+		this.sigma = union.toString().toCharArray();
+		this.symbolIndex = CompiledDFA.buildSymbolIndex(this.sigma);
+		this.next = new int[64 * Math.max(1, this.sigma.length)];
+		this.pair(left.getInitialState(), right.getInitialState());
+	}
+
+	public static ProductDFA intersection(CompiledDFA left, CompiledDFA right) {
+		return new ProductDFA(Operation.INTERSECTION, left, right);
+	}
+
+	public static ProductDFA union(CompiledDFA left, CompiledDFA right) {
+		return new ProductDFA(Operation.UNION, left, right);
+	}
+
+	/**
+	 * @return The inputs accepted by left but not by right
+	 */
+	public static ProductDFA difference(CompiledDFA left, CompiledDFA right) {
+		return new ProductDFA(Operation.DIFFERENCE, left, right);
+	}
+
+	/**
+	 * @return The inputs accepted by exactly one of left and right
+	 */
+	public static ProductDFA symmetricDifference(CompiledDFA left, CompiledDFA right) {
+		return new ProductDFA(Operation.SYMMETRIC_DIFFERENCE, left, right);
+	}
+
+	@Override
+	public boolean matches(CharSequence input) {
+		int pair = 0;
+		for(int i = 0; i < input.length(); i++) {
+			char c = input.charAt(i);
+			if(c >= this.symbolIndex.length || this.symbolIndex[c] == CompiledDFA.REJECT)
+				return false;
+			pair = this.step(pair, this.symbolIndex[c]);
+			if(this.dead[pair])
+				return false;
+		}
+		return this.accepting[pair];
+	}
+
+	/**
+	 * Test whether the product accepts no input at all.  Pairs are explored
+	 * breadth-first, and the search stops at the first accepting pair.
+	 * @return True if no input is accepted
+	 */
+	public boolean isEmpty() {
+		return this.shortestAccepted() == null;
+	}
+
+	/**
+	 * Find a shortest input the product accepts.  Pairs are explored
+	 * breadth-first, and the search stops at the first accepting pair.
+	 * @return A shortest accepted input, or null if the product is empty
+	 */
+	public String shortestAccepted() {
+		// The pair each pair was first reached from, and the symbol it was
+		// reached on, so the input can be rebuilt backwards
+		int[] parent = new int[Math.max(1, this.numPairs)];
+		int[] via = new int[parent.length];
+		Arrays.fill(parent, NOT_COMPUTED);
+		int[] queue = new int[parent.length];
+		int tail = 0;
+		queue[tail++] = 0;
+		parent[0] = 0;
+
+		for(int head = 0; head < tail; head++) {
+			int pair = queue[head];
+			if(this.accepting[pair])
+				return this.inputTo(pair, parent, via);
+			if(this.dead[pair])
+				continue;
+			for(int symbol = 0; symbol < this.sigma.length; symbol++) {
+				int target = this.step(pair, symbol);
+				if(target >= parent.length) {
+					int length = Math.max(parent.length * 2, target + 1);
+					parent = Arrays.copyOf(parent, length);
+					Arrays.fill(parent, via.length, length, NOT_COMPUTED);
+					via = Arrays.copyOf(via, length);
+					queue = Arrays.copyOf(queue, length);
+				}
+				if(parent[target] == NOT_COMPUTED) {
+					parent[target] = pair;
+					via[target] = symbol;
+					queue[tail++] = target;
+				}
+			}
+		}
+		return null;
+	}
+
+	private String inputTo(int pair, int[] parent, int[] via) {
+		StringBuilder input = new StringBuilder();
+		while(pair != 0) {
+			input.append(this.sigma[via[pair]]);
+			pair = parent[pair];
+		}
+		return input.reverse().toString();
+	}
+
+	/**
+	 * Follow a transition, building the target pair first if needed.
+	 * @param pair The current pair
+	 * @param symbol The index in sigma of the input character
+	 * @return The next pair
+	 */
+	private int step(int pair, int symbol) {
+		int index = pair * this.sigma.length + symbol;
+		int target = this.next[index];
+		if(target != NOT_COMPUTED)
+			return target;
+
+		char c = this.sigma[symbol];
+		int l = this.lefts[pair];
+		int r = this.rights[pair];
+		target = this.pair(l == CompiledDFA.REJECT ? l : this.left.step(l, c),
+				r == CompiledDFA.REJECT ? r : this.right.step(r, c));
+		// pair may have replaced the table with a larger one
+		this.next[index] = target;
+		return target;
+	}
+
+	/**
+	 * Find the number of a pair, adding it if it is new.
+	 */
+	private int pair(int l, int r) {
+		// A side in a dead state can never accept again, just like a side
+		// which has rejected, so both are stored as REJECT
+		if(this.left.isDead(l)) {
+			l = CompiledDFA.REJECT;
+		}
+		if(this.right.isDead(r)) {
+			r = CompiledDFA.REJECT;
+		}
+		Long key = ((long) l << 32) | (r & 0xFFFFFFFFL);
+		Integer known = this.pairNumbers.get(key);
+		if(known != null)
+			return known;
+
+		int pair = this.numPairs++;
+		if(pair == this.lefts.length) {
+			int length = this.lefts.length * 2;
+			this.lefts = Arrays.copyOf(this.lefts, length);
+			this.rights = Arrays.copyOf(this.rights, length);
+			this.accepting = Arrays.copyOf(this.accepting, length);
+			this.dead = Arrays.copyOf(this.dead, length);
+		}
+		if((pair + 1) * this.sigma.length > this.next.length) {
+			int length = this.next.length * 2;
+			this.next = Arrays.copyOf(this.next, length);
+		}
+		Arrays.fill(this.next, pair * this.sigma.length, (pair + 1) * this.sigma.length, NOT_COMPUTED);
+
+		this.lefts[pair] = l;
+		this.rights[pair] = r;
+		boolean leftAccepts = l != CompiledDFA.REJECT && this.left.isAccepting(l);
+		boolean rightAccepts = r != CompiledDFA.REJECT && this.right.isAccepting(r);
+		this.accepting[pair] = this.operation.accepts(leftAccepts, rightAccepts);
+		// A side which has rejected stays rejected, so the pair is dead if
+		// the operation is false whatever the live sides do later
+		boolean canAccept = false;
+		for(int both = 0; both < 4; both++) {
+			boolean leftLater = (both & 1) != 0;
+			boolean rightLater = (both & 2) != 0;
+			if((leftLater && l == CompiledDFA.REJECT) || (rightLater && r == CompiledDFA.REJECT))
+				continue;
+			canAccept |= this.operation.accepts(leftLater, rightLater);
+		}
+		this.dead[pair] = !canAccept;
+		this.pairNumbers.put(key, pair);
+		return pair;
+	}
+
+	/**
+	 * @return The number of pairs built so far
+	 */
+	public int getExploredPairs() { return this.numPairs; }
+	public Operation getOperation() { return this.operation; }
+	public char[] getSigma() { return this.sigma.clone(); }
+
+	/**
+	 * Combine two NFA files with an operation, print whether anything is
+	 * accepted and which of the input strings are.
+	 * Usage: ProductDFA intersection|union|difference|symmetric_difference nfaFileA nfaFileB inputFile
+	 */
+	public static void main(String[] args) throws IOException {
+		if(args.length < 4) {
+			System.out.println("ProductDFA requires (4) arguments");
+			return;
+		}
+
+		Operation operation = Operation.valueOf(args[0].toUpperCase());
+		CompiledDFA a = new MinimizedDFA(AutomatonParser.readNFA(Paths.get(args[1]))).compile();
+		CompiledDFA b = new MinimizedDFA(AutomatonParser.readNFA(Paths.get(args[2]))).compile();
+		String[] testInputs = Reader.readIntoLines(args[3]);
+		ProductDFA product = new ProductDFA(operation, a, b);
+
+		String shortest = product.shortestAccepted();
+		if(shortest == null) {
+			System.out.println("The product accepts nothing");
+		} else {
+			System.out.println("Shortest accepted string: \"" + shortest + "\"");
+		}
+
+		System.out.println("The following strings are accepted:");
+		for(String input : testInputs) {
+			if(product.matches(input)) {
+				System.out.println(input);
+			}
+		}
+	}
+
+}
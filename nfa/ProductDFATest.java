@@ -0,0 +1,115 @@
+package nfa;
+
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ProductDFATest {
+
+	private static final String CONTAINS_AA =
+			"3\n" +
+			"a b \n" +
+			"0: {0,1} {0} {} \n" +
+			"1: {2} {} {} \n" +
+			"2: {2} {2} {} \n" +
+			"0\n" +
+			"{2}\n";
+
+	private static final String ENDS_IN_B =
+			"2\n" +
+			"a b \n" +
+			"0: {0} {0,1} {} \n" +
+			"1: {} {} {} \n" +
+			"0\n" +
+			"{1}\n";
+
+	private static CompiledDFA compile(String nfa) {
+		return new MinimizedDFA(new NFA(nfa)).compile();
+	}
+
+	@Test
+	public void operationsAgreeWithOperands() {
+		Random random = new Random(3);
+		for(long seed = 0; seed < 5; seed++) {
+			CompiledDFA a = new DFA(AutomatonGenerator.randomDFA(15, 2, 0.3, seed)).compile();
+			CompiledDFA b = new DFA(AutomatonGenerator.randomDFA(15, 3, 0.3, seed + 100)).compile();
+			ProductDFA and = ProductDFA.intersection(a, b);
+			ProductDFA or = ProductDFA.union(a, b);
+			ProductDFA minus = ProductDFA.difference(a, b);
+
+			char[] sigma = or.getSigma();
+			for(int n = 0; n < 300; n++) {
+				char[] input = new char[random.nextInt(10)];
+				for(int c = 0; c < input.length; c++) {
+					input[c] = sigma[random.nextInt(sigma.length)];
+				}
+				String s = new String(input);
+				assertEquals(s, a.matches(s) && b.matches(s), and.matches(s));
+				assertEquals(s, a.matches(s) || b.matches(s), or.matches(s));
+				assertEquals(s, a.matches(s) && !b.matches(s), minus.matches(s));
+			}
+		}
+	}
+
+	@Test
+	public void findsShortestWitness() {
+		ProductDFA product = ProductDFA.difference(compile(CONTAINS_AA), compile(ENDS_IN_B));
+
+		assertFalse(product.isEmpty());
+		assertEquals("aa", product.shortestAccepted());
+		assertTrue(product.matches("baaba"));
+		assertFalse(product.matches("aab"));
+	}
+
+	@Test
+	public void detectsEmptiness() {
+		CompiledDFA a = compile(CONTAINS_AA);
+		ProductDFA product = ProductDFA.intersection(a, a.complement());
+
+		assertTrue(product.isEmpty());
+		assertNull(product.shortestAccepted());
+		assertTrue(ProductDFA.difference(a, a).isEmpty());
+	}
+
+	@Test
+	public void onlyBuildsReachablePairs() {
+		CompiledDFA a = new DFA(AutomatonGenerator.kthFromEndDFA(8)).compile();
+		// Nothing over {c} is accepted by a, so the search stops at once
+		CompiledDFA c = compile("1\nc \n0: {0} {} \n0\n{0}\n");
+		ProductDFA product = ProductDFA.intersection(a, c);
+
+		assertTrue(product.isEmpty());
+		assertTrue(product.getExploredPairs() < 10);
+	}
+
+	@Test
+	public void complementAcceptsTheRestOfSigmaStar() {
+		CompiledDFA a = compile(CONTAINS_AA);
+		CompiledDFA complement = a.complement();
+
+		for(String input : new String[] { "", "a", "aa", "bab", "baab", "abab" }) {
+			assertEquals(input, !a.matches(input), complement.matches(input));
+		}
+		assertFalse(complement.matches("c"));
+	}
+
+	@Test
+	public void stopsAtDeadStatesOfMinimalOperands() {
+		// Minimal DFAs built from NFAs have an explicit sink instead of REJECT
+		CompiledDFA left = new MinimizedDFA(RegexCompiler.glushkov("ab*")).compile();
+		CompiledDFA right = new MinimizedDFA(RegexCompiler.glushkov("a*b")).compile();
+		int sink = left.step(left.getInitialState(), 'b');
+		assertNotEquals(CompiledDFA.REJECT, sink);
+		assertTrue(left.isDead(sink));
+
+		ProductDFA product = ProductDFA.intersection(left, right);
+		assertFalse(product.matches("baaaaa"));
+		// The initial pair and the dead pair "b" leads to
+		assertEquals(2, product.getExploredPairs());
+
+		assertTrue(ProductDFA.union(left, right).matches("b"));
+		assertEquals("b", ProductDFA.difference(right, left).shortestAccepted());
+	}
+
+}
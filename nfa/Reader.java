@@ -1,6 +1,9 @@
 package nfa;
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Scanner;
 
@@ -24,8 +27,32 @@ public class Reader {
 		return sb.toString();
 	}
 	
+	/**
+	 * Read the non-empty lines of a file.  Lines are read one at a time rather
+	 * than through readEntireFile, so the file is only held in memory once.
+	 * An empty file gives a single empty string, as tokenizing the whole file
+	 * did.
+	 * @param path The file to read
+	 * @return The non-empty lines of the file, or null if it can't be read
+	 */
 	public static String[] readIntoLines(String path) {
-		return Reader.tokenize(Reader.readEntireFile(path), "\n");
+		ArrayList<String> lines = new ArrayList<>();
+		boolean emptyFile = true;
+		try(BufferedReader in = new BufferedReader(new FileReader(path))) {
+			String line;
+			while((line = in.readLine()) != null) {
+				emptyFile = false;
+				if(!line.isEmpty()) {
+					lines.add(line);
+				}
+			}
+		} catch (IOException e) {
+			return null;
+		}
+
+		if(emptyFile)
+			return new String[] { "" };
+		return lines.toArray(new String[lines.size()]);
 	}
 	
 	public static String[] match(String base, String regex) {
@@ -1,5 +1,10 @@
 package nfa;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 import org.junit.Test;
 import static org.junit.Assert.*;
 
@@ -113,4 +118,17 @@ public class ReaderTest {
 		assertArrayEquals(expectedIndices, actualIndices);
 	}
 	
+	@Test
+	public void readIntoLinesSkipsEmptyLines() throws IOException {
+		Path file = Files.createTempFile("lines", ".txt");
+		try {
+			Files.write(file, "a\n\nbc\r\n".getBytes(StandardCharsets.US_ASCII));
+			assertArrayEquals(new String[] { "a", "bc" }, Reader.readIntoLines(file.toString()));
+			Files.write(file, new byte[0]);
+			assertArrayEquals(new String[] { "" }, Reader.readIntoLines(file.toString()));
+		} finally {
+			Files.delete(file);
+		}
+	}
+	
 }
@@ -0,0 +1,472 @@
+package nfa;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Compiles a regular expression straight into an NFA, without writing it out
+ * in the NFA file format first.  The syntax is:
+ * <pre>
+ *   a        the character a
+ *   \c       the character c, even if it is one of the operators below
+ *   [abx-z]  any one of the characters listed, with ranges
+ *   ^        lambda, the empty string, as in the NFA file format
+ *   xy       x followed by y
+ *   x|y      x or y; an empty side means lambda
+ *   x* x+ x? zero or more, one or more, or zero or one x
+ *   (x)      grouping
+ * </pre>
+ * Sigma is every character the expression names, in order of first use.
+ * '^' is lambda, so it can't be a character of sigma, even escaped.
+ * <p>
+ * thompson builds Thompson's construction, with one lambda transition per
+ * operator and about two states per character.  glushkov builds the
+ * position automaton, which has one state per character of the expression
+ * plus an initial state and no lambda transitions at all, so determinizing it
+ * never has to compute a closure.
+ * @author mjoer
+ */
+public class RegexCompiler {
+
+	private static final String SOURCE = "regex";
+
+	private RegexCompiler() {}
+
+	/**
+	 * Compile a regular expression with Thompson's construction.
+	 * @param regex The expression
+	 * @return An NFA with lambda transitions that accepts the expression
+	 * @throws AutomatonFormatException If the expression is malformed
+	 */
+	public static NFA thompson(String regex) {
+		long start = System.nanoTime();
+		Parser parser = new Parser(regex);
+		Node root = parser.parse();
+		Edges edges = new Edges(parser.sigma.length());
+		int[] fragment = RegexCompiler.thompson(root, edges, parser);
+		NFA nfa = new NFA(edges.toTables(parser.sigma(), fragment[0], new int[] { fragment[1] }));
+		Metrics.phaseCompleted(Metrics.PARSE, start);
+		return nfa;
+	}
+
+	/**
+	 * Compile a regular expression into its position automaton.
+	 * @param regex The expression
+	 * @return An NFA without lambda transitions that accepts the expression
+	 * @throws AutomatonFormatException If the expression is malformed
+	 */
+	public static NFA glushkov(String regex) {
+		long start = System.nanoTime();
+		Parser parser = new Parser(regex);
+		Node root = parser.parse();
+		// State 0 is the initial state and state p is position p
+		int numPositions = parser.positions.size();
+		BitSet[] follow = new BitSet[numPositions + 1];
+		for(int p = 1; p <= numPositions; p++) {
+			follow[p] = new BitSet();
+		}
+		Positions positions = RegexCompiler.glushkov(root, follow);
+
+		Edges edges = new Edges(parser.sigma.length());
+		edges.reserve(numPositions + 1);
+		for(int q = positions.first.nextSetBit(0); q >= 0; q = positions.first.nextSetBit(q + 1)) {
+			edges.addAll(0, parser.positions.get(q - 1), q);
+		}
+		for(int p = 1; p <= numPositions; p++) {
+			for(int q = follow[p].nextSetBit(0); q >= 0; q = follow[p].nextSetBit(q + 1)) {
+				edges.addAll(p, parser.positions.get(q - 1), q);
+			}
+		}
+		BitSet accepting = (BitSet) positions.last.clone();
+		if(positions.nullable) {
+			accepting.set(0);
+		}
+		NFA nfa = new NFA(edges.toTables(parser.sigma(), 0, accepting.stream().toArray()));
+		Metrics.phaseCompleted(Metrics.PARSE, start);
+		return nfa;
+	}
+
+	/**
+	 * Build the Thompson fragment of a node.
+	 * @return The start and end state of the fragment
+	 */
+	private static int[] thompson(Node node, Edges edges, Parser parser) {
+		int lambda = parser.sigma.length();
+		int start = edges.newState();
+		int end;
+		switch(node.kind) {
+		case LAMBDA:
+			end = edges.newState();
+			edges.add(start, lambda, end);
+			break;
+		case SYMBOLS:
+			end = edges.newState();
+			edges.addAll(start, node.symbols, end);
+			break;
+		case CONCAT:
+			end = start;
+			for(Node child : node.children) {
+				int[] fragment = RegexCompiler.thompson(child, edges, parser);
+				edges.add(end, lambda, fragment[0]);
+				end = fragment[1];
+			}
+			break;
+		case ALTERNATE:
+			int[][] fragments = new int[node.children.size()][];
+			for(int i = 0; i < fragments.length; i++) {
+				fragments[i] = RegexCompiler.thompson(node.children.get(i), edges, parser);
+			}
+			end = edges.newState();
+			for(int[] fragment : fragments) {
+				edges.add(start, lambda, fragment[0]);
+				edges.add(fragment[1], lambda, end);
+			}
+			break;
+		default:
+			int[] fragment = RegexCompiler.thompson(node.children.get(0), edges, parser);
+			end = edges.newState();
+			edges.add(start, lambda, fragment[0]);
+			edges.add(fragment[1], lambda, end);
+			if(node.kind != Kind.PLUS) {
+				// Zero times
+				edges.add(start, lambda, end);
+			}
+			if(node.kind != Kind.OPTIONAL) {
+				// Once more
+				edges.add(fragment[1], lambda, fragment[0]);
+			}
+			break;
+		}
+		return new int[] { start, end };
+	}
+
+	/**
+	 * The positions a node can start and end with, and whether it matches
+	 * lambda.
+	 */
+	private static class Positions {
+		private boolean nullable;
+		private BitSet first = new BitSet();
+		private BitSet last = new BitSet();
+	}
+
+	/**
+	 * Find the first and last positions of a node, and add the pairs of
+	 * positions which can follow each other inside it to follow.
+	 */
+	private static Positions glushkov(Node node, BitSet[] follow) {
+		Positions result = new Positions();
+		switch(node.kind) {
+		case LAMBDA:
+			result.nullable = true;
+			break;
+		case SYMBOLS:
+			result.first.set(node.position);
+			result.last.set(node.position);
+			break;
+		case CONCAT:
+			result.nullable = true;
+			for(Node child : node.children) {
+				Positions next = RegexCompiler.glushkov(child, follow);
+				RegexCompiler.addFollow(follow, result.last, next.first);
+				if(result.nullable) {
+					result.first.or(next.first);
+				}
+				if(!next.nullable) {
+					result.last.clear();
+				}
+				result.last.or(next.last);
+				result.nullable &= next.nullable;
+			}
+			break;
+		case ALTERNATE:
+			for(Node child : node.children) {
+				Positions next = RegexCompiler.glushkov(child, follow);
+				result.nullable |= next.nullable;
+				result.first.or(next.first);
+				result.last.or(next.last);
+			}
+			break;
+		default:
+			result = RegexCompiler.glushkov(node.children.get(0), follow);
+			if(node.kind != Kind.OPTIONAL) {
+				RegexCompiler.addFollow(follow, result.last, result.first);
+			}
+			result.nullable |= node.kind != Kind.PLUS;
+			break;
+		}
+		return result;
+	}
+
+	private static void addFollow(BitSet[] follow, BitSet from, BitSet to) {
+		for(int p = from.nextSetBit(0); p >= 0; p = from.nextSetBit(p + 1)) {
+			follow[p].or(to);
+		}
+	}
+
+	private enum Kind { LAMBDA, SYMBOLS, CONCAT, ALTERNATE, STAR, PLUS, OPTIONAL }
+
+	private static class Node {
+		private final Kind kind;
+		private final List<Node> children = new ArrayList<>();
+		// For SYMBOLS, the indices in sigma of the characters and the position
+		private int[] symbols;
+		private int position;
+
+		private Node(Kind kind) {
+			this.kind = kind;
+		}
+	}
+
+	/**
+	 * A recursive descent parser for the expression.  It collects sigma and
+	 * numbers the SYMBOLS nodes from 1 in the order they appear.
+	 */
+	private static class Parser {
+		private final String regex;
+		private int index;
+		private final StringBuilder sigma = new StringBuilder();
+		// The symbols of every position
+		private final List<int[]> positions = new ArrayList<>();
+
+		private Parser(String regex) {
+			this.regex = regex;
+		}
+
+		private Node parse() {
+			Node root = this.alternation();
+			if(this.index < this.regex.length())
+				throw this.error("unmatched ')'");
+			return root;
+		}
+
+		private char[] sigma() {
+			char[] withLambda = Arrays.copyOf(this.sigma.toString().toCharArray(), this.sigma.length() + 1);
+			withLambda[this.sigma.length()] = NFA.LAMBDA;
+			return withLambda;
+		}
+
+		private Node alternation() {
+			Node first = this.concatenation();
+			if(this.peek() != '|')
+				return first;
+			Node node = new Node(Kind.ALTERNATE);
+			node.children.add(first);
+			while(this.peek() == '|') {
+				this.index++;
+				node.children.add(this.concatenation());
+			}
+			return node;
+		}
+
+		private Node concatenation() {
+			Node node = new Node(Kind.CONCAT);
+			for(int c = this.peek(); c != -1 && c != '|' && c != ')'; c = this.peek()) {
+				node.children.add(this.repetition());
+			}
+			if(node.children.isEmpty())
+				return new Node(Kind.LAMBDA);
+			return node.children.size() == 1 ? node.children.get(0) : node;
+		}
+
+		private Node repetition() {
+			Node node = this.atom();
+			for(int c = this.peek(); c == '*' || c == '+' || c == '?'; c = this.peek()) {
+				this.index++;
+				Node repeated = new Node(c == '*' ? Kind.STAR : c == '+' ? Kind.PLUS : Kind.OPTIONAL);
+				repeated.children.add(node);
+				node = repeated;
+			}
+			return node;
+		}
+
+		private Node atom() {
+			char c = this.regex.charAt(this.index);
+			switch(c) {
+			case '(':
+				this.index++;
+				Node group = this.alternation();
+				if(this.peek() != ')')
+					throw this.error("expected ')'");
+				this.index++;
+				return group;
+			case '[':
+				return this.characterClass();
+			case '*':
+			case '+':
+			case '?':
+				throw this.error("'" + c + "' has nothing to repeat");
+			case NFA.LAMBDA:
+				this.index++;
+				return new Node(Kind.LAMBDA);
+			case '\\':
+				this.index++;
+				if(this.index == this.regex.length())
+					throw this.error("'\\' at the end of the expression");
+				return this.symbols(new char[] { this.literal() });
+			default:
+				return this.symbols(new char[] { this.literal() });
+			}
+		}
+
+		private Node characterClass() {
+			int open = this.index++;
+			StringBuilder chars = new StringBuilder();
+			while(this.peek() != ']') {
+				if(this.peek() == -1) {
+					this.index = open;
+					throw this.error("unmatched '['");
+				}
+				if(this.peek() == '\\') {
+					this.index++;
+					if(this.index == this.regex.length())
+						throw this.error("'\\' at the end of the expression");
+				}
+				char from = this.literal();
+				if(this.peek() == '-' && this.index + 1 < this.regex.length() && this.regex.charAt(this.index + 1) != ']') {
+					this.index++;
+					char to = this.literal();
+					if(to < from)
+						throw this.error("range " + from + "-" + to + " is backwards");
+					if(from <= NFA.LAMBDA && NFA.LAMBDA <= to)
+						throw this.error("range " + from + "-" + to + " contains '" + NFA.LAMBDA + "', which is reserved for lambda");
+					for(char r = from; r <= to; r++) {
+						chars.append(r);
+						if(r == Character.MAX_VALUE)
+							break;
+					}
+				} else {
+					chars.append(from);
+				}
+			}
+			this.index++;
+			if(chars.length() == 0)
+				throw this.error("empty character class");
+			return this.symbols(chars.toString().toCharArray());
+		}
+
+		/**
+		 * Read one character of sigma.
+		 */
+		private char literal() {
+			char c = this.regex.charAt(this.index);
+			if(c == NFA.LAMBDA)
+				throw this.error("'" + NFA.LAMBDA + "' is reserved for lambda and can't be in sigma");
+			this.index++;
+			return c;
+		}
+
+		private Node symbols(char[] chars) {
+			Node node = new Node(Kind.SYMBOLS);
+			BitSet seen = new BitSet();
+			int[] symbols = new int[chars.length];
+			int size = 0;
+			for(char c : chars) {
+				int symbol = this.sigma.indexOf(String.valueOf(c));
+				if(symbol < 0) {
+					symbol = this.sigma.length();
+					this.sigma.append(c);
+				}
+				if(!seen.get(symbol)) {
+					seen.set(symbol);
+					symbols[size++] = symbol;
+				}
+			}
+			node.symbols = Arrays.copyOf(symbols, size);
+			this.positions.add(node.symbols);
+			node.position = this.positions.size();
+			return node;
+		}
+
+		private int peek() {
+			return this.index < this.regex.length() ? this.regex.charAt(this.index) : -1;
+		}
+
+		private AutomatonFormatException error(String message) {
+			return new AutomatonFormatException(SOURCE, 1, this.index + 1, message);
+		}
+	}
+
+	/**
+	 * Collects transitions as (from, symbol, to) triples and lays them out
+	 * as the tables NFA(NFATables) reads.  Symbols are indices in sigma, and
+	 * lambda is the index just past the last character.
+	 */
+	private static class Edges {
+		private final int numSymbols;
+		private int numStates;
+		private int[] triples = new int[3 * 64];
+		private int size;
+
+		private Edges(int numCharacters) {
+			this.numSymbols = numCharacters + 1;
+		}
+
+		private int newState() {
+			return this.numStates++;
+		}
+
+		private void reserve(int states) {
+			this.numStates = Math.max(this.numStates, states);
+		}
+
+		private void add(int from, int symbol, int to) {
+			if(this.size + 3 > this.triples.length) {
+				this.triples = Arrays.copyOf(this.triples, this.triples.length * 2);
+			}
+			this.triples[this.size++] = from;
+			this.triples[this.size++] = symbol;
+			this.triples[this.size++] = to;
+		}
+
+		private void addAll(int from, int[] symbols, int to) {
+			for(int symbol : symbols) {
+				this.add(from, symbol, to);
+			}
+		}
+
+		private AutomatonParser.NFATables toTables(char[] sigma, int initialState, int[] accepting) {
+			// Count the targets of every (state, symbol) pair, then place them,
+			// keeping the order they were added in
+			int[] offsets = new int[this.numStates * this.numSymbols + 1];
+			for(int i = 0; i < this.size; i += 3) {
+				offsets[this.triples[i] * this.numSymbols + this.triples[i + 1] + 1]++;
+			}
+			for(int pair = 0; pair + 1 < offsets.length; pair++) {
+				offsets[pair + 1] += offsets[pair];
+			}
+			int[] targets = new int[this.size / 3];
+			int[] fill = Arrays.copyOf(offsets, offsets.length - 1);
+			for(int i = 0; i < this.size; i += 3) {
+				targets[fill[this.triples[i] * this.numSymbols + this.triples[i + 1]]++] = this.triples[i + 2];
+			}
+			return new AutomatonParser.NFATables(sigma, this.numStates, offsets, targets, initialState, accepting);
+		}
+	}
+
+	/**
+	 * Compile a regular expression and print which input strings it accepts.
+	 * Usage: RegexCompiler [--thompson] regex inputFile
+	 */
+	public static void main(String[] args) throws IOException {
+		CommandLine commandLine = new CommandLine(args);
+		args = commandLine.getArguments();
+
+		if(args.length < 2) {
+			System.out.println("RegexCompiler requires (2) arguments");
+			return;
+		}
+
+		NFA nfa = commandLine.hasOption("--thompson") ? RegexCompiler.thompson(args[0]) : RegexCompiler.glushkov(args[0]);
+		String[] testInputs = Reader.readIntoLines(args[1]);
+
+		System.out.println("The following strings are accepted:");
+		try(BatchMatcher batch = new BatchMatcher(new MinimizedDFA(nfa))) {
+			batch.acceptedStrings(testInputs)
+				.forEach(i -> System.out.println(i));
+		}
+	}
+
+}
@@ -0,0 +1,90 @@
+package nfa;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class RegexCompilerTest {
+
+	private static final String[] INPUTS = new String[] {
+			"", "a", "b", "ab", "ba", "abb", "aab", "abab", "bbbb", "abc", "ca", "cab"
+	};
+
+	@Test
+	public void compilesOperators() {
+		for(NFA nfa : new NFA[] { RegexCompiler.thompson("(a|b)*ab+"), RegexCompiler.glushkov("(a|b)*ab+") }) {
+			DFA dfa = new DFA(nfa);
+			assertTrue(dfa.testInput("ab"));
+			assertTrue(dfa.testInput("babbb"));
+			assertFalse(dfa.testInput("a"));
+			assertFalse(dfa.testInput("aba"));
+			assertArrayEquals(new char[] { 'a', 'b', NFA.LAMBDA }, nfa.getSigma());
+		}
+	}
+
+	@Test
+	public void caretIsLambda() {
+		DFA dfa = new DFA(RegexCompiler.glushkov("a(b|^)c"));
+		assertTrue(dfa.testInput("ac"));
+		assertTrue(dfa.testInput("abc"));
+		assertFalse(dfa.testInput("a^c"));
+		assertTrue(new DFA(RegexCompiler.thompson("^")).testInput(""));
+	}
+
+	@Test
+	public void glushkovHasNoLambdaTransitions() {
+		NFA nfa = RegexCompiler.glushkov("(a[bc]*|c?)+b");
+		// One state per character position, plus the initial state
+		assertEquals(5, nfa.getNumStates());
+		for(int q = 0; q < nfa.getNumStates(); q++) {
+			assertEquals(1, nfa.getState(q).getLambdaClosure().length);
+		}
+	}
+
+	@Test
+	public void agreesWithJavaRegex() {
+		Random random = new Random(5);
+		for(int n = 0; n < 200; n++) {
+			String regex = randomRegex(random, 4);
+			Pattern pattern = Pattern.compile(regex.replace("^", "()"));
+			CompiledDFA thompson = new MinimizedDFA(RegexCompiler.thompson(regex)).compile();
+			CompiledDFA glushkov = new MinimizedDFA(RegexCompiler.glushkov(regex)).compile();
+
+			assertNull(regex, LanguageChecks.equivalenceCounterexample(thompson, glushkov));
+			for(String input : INPUTS) {
+				assertEquals(regex + " on " + input, pattern.matcher(input).matches(), thompson.matches(input));
+			}
+		}
+	}
+
+	@Test
+	public void reportsTheColumnOfErrors() {
+		String[] bad = new String[] { "a(b", "ab)", "*a", "a\\^", "[a-", "[c-a]" };
+		int[] columns = new int[] { 4, 3, 1, 3, 1, 5 };
+		for(int i = 0; i < bad.length; i++) {
+			try {
+				RegexCompiler.glushkov(bad[i]);
+				fail(bad[i]);
+			} catch(AutomatonFormatException e) {
+				assertEquals(bad[i] + ": " + e.getMessage(), columns[i], e.getColumn());
+			}
+		}
+	}
+
+	private static String randomRegex(Random random, int depth) {
+		int choice = depth == 0 ? random.nextInt(3) : random.nextInt(9);
+		switch(choice) {
+		case 0: return "a";
+		case 1: return "b";
+		case 2: return random.nextBoolean() ? "^" : "[bc]";
+		case 3: case 4: return randomRegex(random, depth - 1) + randomRegex(random, depth - 1);
+		case 5: return "(" + randomRegex(random, depth - 1) + "|" + randomRegex(random, depth - 1) + ")";
+		case 6: return "(" + randomRegex(random, depth - 1) + ")*";
+		case 7: return "(" + randomRegex(random, depth - 1) + ")+";
+		default: return "(" + randomRegex(random, depth - 1) + ")?";
+		}
+	}
+
+}
@@ -0,0 +1,452 @@
+package nfa;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A Searcher finds where an automaton's language occurs inside longer text,
+ * rather than testing whether the whole text is in it.  A match is a pair
+ * (start, end) such that text[start .. end) is accepted.
+ * <p>
+ * Three more automata are built from the DFA, each by subset construction
+ * and minimization:
+ * <ul>
+ * <li>the forward automaton for sigma* L, which is accepting after reading
+ * text[0 .. end) exactly when some match ends at end, so one forward pass
+ * finds every match end;</li>
+ * <li>the reverse automaton for the reverse of L, which is run backwards from
+ * a match end and is accepting exactly at the starts of the matches ending
+ * there;</li>
+ * <li>the reverse automaton for sigma* (reverse of L), which is run backwards
+ * once over the whole text and is accepting exactly at the positions where
+ * some match starts.</li>
+ * </ul>
+ * Sigma here means every character: characters outside the DFA's sigma can
+ * sit between matches, but never inside one.  Every scan steps through a
+ * table with no backtracking, and a reverse or anchored scan stops as soon
+ * as no match can be completed.  matchStarts and matchEnds read each
+ * character once; forEachMatch and forEachLongestMatch can read some
+ * characters more than once, as their documentation says.
+ * A Searcher holds only immutable tables, so it can be shared between threads.
+ * @author mjoer
+ */
+public class Searcher {
+
+	/**
+	 * Receives matches as they are found.
+	 */
+	public interface MatchConsumer {
+		/**
+		 * @param start The index of the first character of the match
+		 * @param end The index after the last character of the match
+		 */
+		void accept(int start, int end);
+	}
+
+	private final CompiledDFA dfa;
+	// Maps characters to their class.  Characters outside sigma map to
+	// otherClass, which has a column only in the tables built here.
+	private final int[] classIndex;
+	private final int otherClass;
+	private final Table forward;
+	private final Table reverse;
+	private final Table reverseUnanchored;
+
+	/**
+	 * A deterministic table over every symbol class plus otherClass.
+	 */
+	private static final class Table {
+		final int[] next;
+		final int numClasses;
+		final int initialState;
+		final boolean[] accepting;
+		// The state no match can be completed from, or REJECT if there is none
+		final int dead;
+
+		Table(int[] next, int numClasses, int initialState, boolean[] accepting, int dead) {
+			this.next = next;
+			this.numClasses = numClasses;
+			this.initialState = initialState;
+			this.accepting = accepting;
+			this.dead = dead;
+		}
+
+		int step(int state, int symbolClass) {
+			return this.next[state * this.numClasses + symbolClass];
+		}
+	}
+
+	/**
+	 * @param dfa The automaton whose matches should be found
+	 */
+	public Searcher(CompiledDFA dfa) {
+		long start = System.nanoTime();
+		this.dfa = dfa;
+		int numStates = dfa.getNumStates();
+		int numClasses = dfa.getNumSymbolClasses();
+		int[] transitions = dfa.getTransitions();
+		this.classIndex = CompiledDFA.buildClassIndex(dfa.getSigma(), dfa.getSymbolClasses());
+		this.otherClass = numClasses;
+		int width = numClasses + 1;
+
+		// Successors and predecessors in CSR form over (state * width + class),
+		// with no edges on otherClass
+		int[] successorOffsets = new int[numStates * width + 1];
+		int[] successors = new int[transitions.length];
+		int[] predecessorOffsets = new int[numStates * width + 1];
+		int[] predecessors = new int[transitions.length];
+		int edges = 0;
+		for(int state = 0; state < numStates; state++) {
+			for(int symbolClass = 0; symbolClass < numClasses; symbolClass++) {
+				int target = transitions[state * numClasses + symbolClass];
+				if(target != CompiledDFA.REJECT) {
+					successors[edges++] = target;
+					predecessorOffsets[target * width + symbolClass + 1]++;
+				}
+				successorOffsets[state * width + symbolClass + 1] = edges;
+			}
+			successorOffsets[state * width + numClasses + 1] = edges;
+		}
+		for(int i = 0; i < numStates * width; i++) {
+			predecessorOffsets[i + 1] += predecessorOffsets[i];
+		}
+		int[] fill = Arrays.copyOf(predecessorOffsets, predecessorOffsets.length - 1);
+		for(int state = 0; state < numStates; state++) {
+			for(int symbolClass = 0; symbolClass < numClasses; symbolClass++) {
+				int target = transitions[state * numClasses + symbolClass];
+				if(target != CompiledDFA.REJECT) {
+					predecessors[fill[target * width + symbolClass]++] = state;
+				}
+			}
+		}
+
+		boolean[] accepting = new boolean[numStates];
+		for(int state = 0; state < numStates; state++) {
+			accepting[state] = dfa.isAccepting(state);
+		}
+		boolean[] reachable = Searcher.reachable(numStates, width, successorOffsets, successors, Searcher.single(dfa.getInitialState(), numStates));
+		boolean[] coReachable = new boolean[numStates];
+		for(int state = 0; state < numStates; state++) {
+			coReachable[state] = !dfa.isDead(state);
+		}
+
+		// Useless states can't contribute to any match, so they are left out
+		// of the subsets.  That keeps the subsets small and makes the empty
+		// set the only dead one.
+		int[] initial = numStates > 0 && coReachable[dfa.getInitialState()] ? new int[] { dfa.getInitialState() } : new int[0];
+		boolean[] isInitial = Searcher.single(dfa.getInitialState(), numStates);
+		int[] acceptingStates = Searcher.membersOf(accepting, reachable);
+
+		this.forward = Searcher.determinize(numStates, width, successorOffsets, successors, coReachable, initial, initial, accepting);
+		this.reverse = Searcher.determinize(numStates, width, predecessorOffsets, predecessors, reachable, acceptingStates, new int[0], isInitial);
+		this.reverseUnanchored = Searcher.determinize(numStates, width, predecessorOffsets, predecessors, reachable, acceptingStates, acceptingStates, isInitial);
+		Metrics.phaseCompleted(Metrics.DETERMINIZE, start);
+	}
+
+	/**
+	 * Find every position where a match ends, in one forward pass.
+	 * @param text The text to search
+	 * @return A set holding every end, from 0 to text.length()
+	 */
+	public BitSet matchEnds(CharSequence text) {
+		BitSet ends = new BitSet(text.length() + 1);
+		int state = this.forward.initialState;
+		if(this.forward.accepting[state]) {
+			ends.set(0);
+		}
+		for(int i = 0; i < text.length(); i++) {
+			state = this.forward.step(state, this.classOf(text.charAt(i)));
+			if(this.forward.accepting[state]) {
+				ends.set(i + 1);
+			}
+		}
+		return ends;
+	}
+
+	/**
+	 * Find every position where a match starts, in one backward pass.
+	 * @param text The text to search
+	 * @return A set holding every start, from 0 to text.length()
+	 */
+	public BitSet matchStarts(CharSequence text) {
+		BitSet starts = new BitSet(text.length() + 1);
+		int state = this.reverseUnanchored.initialState;
+		if(this.reverseUnanchored.accepting[state]) {
+			starts.set(text.length());
+		}
+		for(int i = text.length() - 1; i >= 0; i--) {
+			state = this.reverseUnanchored.step(state, this.classOf(text.charAt(i)));
+			if(this.reverseUnanchored.accepting[state]) {
+				starts.set(i);
+			}
+		}
+		return starts;
+	}
+
+	/**
+	 * Report every match, including overlapping and empty ones.  Matches are
+	 * reported in order of their end, and matches with the same end in order
+	 * of their start.  The ends come from one forward pass, and the starts
+	 * for each end from a backward scan which stops once no match can start
+	 * further left, so the time is linear in the text plus the characters
+	 * those scans read.
+	 * @param text The text to search
+	 * @param consumer Receives each match
+	 * @return The number of matches
+	 */
+	public int forEachMatch(CharSequence text, MatchConsumer consumer) {
+		BitSet ends = this.matchEnds(text);
+		int[] starts = new int[16];
+		int count = 0;
+		for(int end = ends.nextSetBit(0); end >= 0; end = ends.nextSetBit(end + 1)) {
+			int size = 0;
+			int state = this.reverse.initialState;
+			for(int i = end; ; i--) {
+				if(this.reverse.accepting[state]) {
+					if(size == starts.length) {
+						starts = Arrays.copyOf(starts, size * 2);
+					}
+					starts[size++] = i;
+				}
+				if(i == 0)
+					break;
+				state = this.reverse.step(state, this.classOf(text.charAt(i - 1)));
+				if(state == this.reverse.dead)
+					break;
+			}
+			for(int s = size - 1; s >= 0; s--) {
+				consumer.accept(starts[s], end);
+			}
+			count += size;
+		}
+		return count;
+	}
+
+	/**
+	 * Report the leftmost-longest matches, like POSIX regex search: the match
+	 * which starts furthest left, and of those the longest, then the same
+	 * again from the end of that match.  The matches don't overlap.  After an
+	 * empty match the search goes on from the next character.
+	 * The starts come from one backward pass, and each match is extended
+	 * from its start with the DFA itself, stopping as soon as no longer match
+	 * is possible.
+	 * <p>
+	 * That extension can read past the end of the match it reports, and the
+	 * next search starts again from that end, so those characters are read
+	 * again.  The time is linear in the text plus the characters read past
+	 * each match's end.  In the worst case that is quadratic: for a*b|a on a
+	 * text of only a's, every match is one character long but its extension
+	 * reads to the end of the text.  Only matchStarts and matchEnds are
+	 * always linear.
+	 * @param text The text to search
+	 * @param consumer Receives each match
+	 * @return The number of matches
+	 */
+	public int forEachLongestMatch(CharSequence text, MatchConsumer consumer) {
+		BitSet starts = this.matchStarts(text);
+		int count = 0;
+		for(int start = starts.nextSetBit(0); start >= 0; ) {
+			int end = this.longestMatchFrom(text, start);
+			consumer.accept(start, end);
+			count++;
+			start = starts.nextSetBit(end > start ? end : start + 1);
+		}
+		return count;
+	}
+
+	/**
+	 * @return The end of the longest match starting at start, which must be
+	 * 		the start of some match
+	 */
+	private int longestMatchFrom(CharSequence text, int start) {
+		int state = this.dfa.getInitialState();
+		int end = start;
+		for(int i = start; i < text.length(); i++) {
+			state = this.dfa.step(state, text.charAt(i));
+			if(state == CompiledDFA.REJECT || this.dfa.isDead(state))
+				break;
+			if(this.dfa.isAccepting(state)) {
+				end = i + 1;
+			}
+		}
+		return end;
+	}
+
+	private int classOf(char c) {
+		if(c >= this.classIndex.length || this.classIndex[c] == CompiledDFA.REJECT)
+			return this.otherClass;
+		return this.classIndex[c];
+	}
+
+	/**
+	 * Build a minimal deterministic table by subset construction.  A subset
+	 * reads a symbol by moving each member along its edges, then adding the
+	 * restart states, which makes the table unanchored when restart is the
+	 * initial set.
+	 * @param numStates The number of states of the nondeterministic automaton
+	 * @param width The number of symbol classes
+	 * @param offsets CSR offsets of the edges, indexed by (state * width + class)
+	 * @param targets The targets of the edges
+	 * @param useful The states which may be kept in a subset
+	 * @param initial The sorted initial states
+	 * @param restart The sorted states added after every symbol
+	 * @param accepting Which states make a subset accepting
+	 */
+	private static Table determinize(int numStates, int width, int[] offsets, int[] targets, boolean[] useful,
+			int[] initial, int[] restart, boolean[] accepting) {
+		MetricsListener metrics = Metrics.get();
+		SubsetTable subsets = new SubsetTable();
+		subsets.intern(initial, initial.length);
+		metrics.subsetDiscovered(initial.length);
+
+		int[] transitions = new int[64 * width];
+		boolean[] subsetAccepting = new boolean[64];
+		int[] scratch = new int[Math.max(1, numStates)];
+		// stamp[q] == mark when q is already in scratch
+		int[] stamp = new int[numStates];
+		int mark = 0;
+		for(int subset = 0; subset < subsets.size(); subset++) {
+			if((subset + 1) * width > transitions.length) {
+				transitions = Arrays.copyOf(transitions, transitions.length * 2);
+			}
+			if(subset == subsetAccepting.length) {
+				subsetAccepting = Arrays.copyOf(subsetAccepting, subsetAccepting.length * 2);
+			}
+			for(int i = subsets.start(subset); i < subsets.end(subset); i++) {
+				subsetAccepting[subset] |= accepting[subsets.element(i)];
+			}
+
+			for(int symbolClass = 0; symbolClass < width; symbolClass++) {
+				mark++;
+				int size = 0;
+				for(int i = subsets.start(subset); i < subsets.end(subset); i++) {
+					int index = subsets.element(i) * width + symbolClass;
+					for(int edge = offsets[index]; edge < offsets[index + 1]; edge++) {
+						int target = targets[edge];
+						if(useful[target] && stamp[target] != mark) {
+							stamp[target] = mark;
+							scratch[size++] = target;
+						}
+					}
+				}
+				for(int state : restart) {
+					if(stamp[state] != mark) {
+						stamp[state] = mark;
+						scratch[size++] = state;
+					}
+				}
+				Arrays.sort(scratch, 0, size);
+				int known = subsets.size();
+				transitions[subset * width + symbolClass] = subsets.intern(scratch, size);
+				if(subsets.size() > known) {
+					metrics.subsetDiscovered(size);
+				}
+			}
+		}
+
+		int numSubsets = subsets.size();
+		int[] initialClasses = new int[numSubsets];
+		int empty = CompiledDFA.REJECT;
+		for(int subset = 0; subset < numSubsets; subset++) {
+			initialClasses[subset] = subsetAccepting[subset] ? 1 : 0;
+			if(subsets.start(subset) == subsets.end(subset)) {
+				empty = subset;
+			}
+		}
+
+		int[] blockOf = HopcroftMinimizer.minimize(transitions, numSubsets, width, initialClasses);
+		int numBlocks = HopcroftMinimizer.countBlocks(blockOf);
+		int[] minimal = new int[numBlocks * width];
+		boolean[] minimalAccepting = new boolean[numBlocks];
+		boolean[] built = new boolean[numBlocks];
+		for(int subset = 0; subset < numSubsets; subset++) {
+			int block = blockOf[subset];
+			if(built[block])
+				continue;
+			built[block] = true;
+			minimalAccepting[block] = subsetAccepting[subset];
+			for(int symbolClass = 0; symbolClass < width; symbolClass++) {
+				minimal[block * width + symbolClass] = blockOf[transitions[subset * width + symbolClass]];
+			}
+		}
+		int dead = empty == CompiledDFA.REJECT ? CompiledDFA.REJECT : blockOf[empty];
+		return new Table(minimal, width, blockOf[0], minimalAccepting, dead);
+	}
+
+	/**
+	 * @return The states reachable along the edges from any state in from
+	 */
+	private static boolean[] reachable(int numStates, int width, int[] offsets, int[] targets, boolean[] from) {
+		boolean[] seen = from.clone();
+		int[] queue = new int[numStates];
+		int tail = 0;
+		for(int state = 0; state < numStates; state++) {
+			if(seen[state]) {
+				queue[tail++] = state;
+			}
+		}
+		for(int head = 0; head < tail; head++) {
+			int state = queue[head];
+			for(int edge = offsets[state * width]; edge < offsets[(state + 1) * width]; edge++) {
+				int target = targets[edge];
+				if(!seen[target]) {
+					seen[target] = true;
+					queue[tail++] = target;
+				}
+			}
+		}
+		return seen;
+	}
+
+	private static boolean[] single(int state, int numStates) {
+		boolean[] set = new boolean[numStates];
+		if(state >= 0 && state < numStates) {
+			set[state] = true;
+		}
+		return set;
+	}
+
+	private static int[] membersOf(boolean[] set, boolean[] useful) {
+		int[] members = new int[set.length];
+		int size = 0;
+		for(int state = 0; state < set.length; state++) {
+			if(set[state] && useful[state]) {
+				members[size++] = state;
+			}
+		}
+		return Arrays.copyOf(members, size);
+	}
+
+	/**
+	 * Search every line of a file for an NFA's matches and print each match
+	 * with its line number and position.  With --all every match is printed,
+	 * including overlapping ones, and otherwise the leftmost-longest ones.
+	 * Usage: Searcher [--all] nfaFile inputFile
+	 */
+	public static void main(String[] args) throws IOException {
+		CommandLine commandLine = new CommandLine(args);
+		args = commandLine.getArguments();
+
+		if(args.length < 2) {
+			System.out.println("Searcher requires (2) arguments");
+			return;
+		}
+
+		Searcher searcher = new MinimizedDFA(AutomatonParser.readNFA(Paths.get(args[0]))).searcher();
+		String[] lines = Reader.readIntoLines(args[1]);
+		boolean all = commandLine.hasOption("--all");
+		for(int n = 0; n < lines.length; n++) {
+			String line = lines[n];
+			int lineNumber = n + 1;
+			MatchConsumer print = (start, end) ->
+					System.out.println(lineNumber + ":" + start + "-" + end + ": " + line.substring(start, end));
+			if(all) {
+				searcher.forEachMatch(line, print);
+			} else {
+				searcher.forEachLongestMatch(line, print);
+			}
+		}
+	}
+
+}
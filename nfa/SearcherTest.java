@@ -0,0 +1,102 @@
+package nfa;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class SearcherTest {
+
+	@Test
+	public void findsMatchesInsideText() {
+		Searcher searcher = new MinimizedDFA(RegexCompiler.glushkov("ab+")).searcher();
+		assertEquals("[1, 5] [6, 8] [9, 11]", SearcherTest.longest(searcher, "xabbbaab.ab"));
+		assertEquals("[1, 3] [1, 4] [1, 5] [6, 8] [9, 11]", SearcherTest.all(searcher, "xabbbaab.ab"));
+	}
+
+	@Test
+	public void prefersTheLeftmostStart() {
+		// "c" ends first, but "abcd" starts further left
+		Searcher searcher = new MinimizedDFA(RegexCompiler.glushkov("abcd|c")).searcher();
+		assertEquals("[0, 4] [5, 6]", SearcherTest.longest(searcher, "abcdxc"));
+	}
+
+	@Test
+	public void skipsPastEmptyMatches() {
+		Searcher searcher = new MinimizedDFA(RegexCompiler.glushkov("a*")).searcher();
+		assertEquals("[0, 2] [2, 2] [3, 4] [4, 4]", SearcherTest.longest(searcher, "aaba"));
+	}
+
+	@Test
+	public void agreesWithBruteForce() {
+		Random random = new Random(9);
+		String[] regexes = new String[] { "a(b|c)*a", "(ab|b)+", "^|a", "a?b?c", "(a|b)*abb", "[abc]c*" };
+		for(String regex : regexes) {
+			MinimizedDFA dfa = new MinimizedDFA(RegexCompiler.thompson(regex));
+			Searcher searcher = dfa.searcher();
+			for(int n = 0; n < 50; n++) {
+				StringBuilder text = new StringBuilder();
+				int length = random.nextInt(12);
+				for(int i = 0; i < length; i++) {
+					text.append("abcx".charAt(random.nextInt(4)));
+				}
+				String input = text.toString();
+				assertEquals(regex + " on " + input, SearcherTest.bruteForceAll(dfa, input), SearcherTest.all(searcher, input));
+				assertEquals(regex + " on " + input, SearcherTest.bruteForceLongest(dfa, input), SearcherTest.longest(searcher, input));
+			}
+		}
+	}
+
+	@Test
+	public void emptyLanguageHasNoMatches() {
+		Searcher searcher = new MinimizedDFA(new NFA("1\na\n0: {0} {}\n0\n{}\n")).searcher();
+		assertEquals("", SearcherTest.all(searcher, "aaa"));
+		assertTrue(searcher.matchStarts("aaa").isEmpty());
+	}
+
+	private static String all(Searcher searcher, String text) {
+		List<String> matches = new ArrayList<>();
+		searcher.forEachMatch(text, (start, end) -> matches.add("[" + start + ", " + end + "]"));
+		return String.join(" ", matches);
+	}
+
+	private static String longest(Searcher searcher, String text) {
+		List<String> matches = new ArrayList<>();
+		searcher.forEachLongestMatch(text, (start, end) -> matches.add("[" + start + ", " + end + "]"));
+		return String.join(" ", matches);
+	}
+
+	private static String bruteForceAll(MinimizedDFA dfa, String text) {
+		List<String> matches = new ArrayList<>();
+		for(int end = 0; end <= text.length(); end++) {
+			for(int start = 0; start <= end; start++) {
+				if(dfa.matches(text.substring(start, end))) {
+					matches.add("[" + start + ", " + end + "]");
+				}
+			}
+		}
+		return String.join(" ", matches);
+	}
+
+	private static String bruteForceLongest(MinimizedDFA dfa, String text) {
+		List<String> matches = new ArrayList<>();
+		for(int start = 0; start <= text.length(); ) {
+			int end = -1;
+			for(int e = start; e <= text.length(); e++) {
+				if(dfa.matches(text.substring(start, e))) {
+					end = e;
+				}
+			}
+			if(end < 0) {
+				start++;
+				continue;
+			}
+			matches.add("[" + start + ", " + end + "]");
+			start = end > start ? end : start + 1;
+		}
+		return String.join(" ", matches);
+	}
+
+}
@@ -0,0 +1,143 @@
+package nfa;
+import java.util.Arrays;
+
+/**
+ * StateLayout renumbers the states of a CompiledDFA so the rows of the
+ * transition table which are used together sit next to each other.  Subset
+ * construction numbers states in discovery order and minimization numbers
+ * them by their lowest member, so on a large table consecutive steps of a
+ * match can land on rows far apart, and every step can miss the cache.
+ * <p>
+ * A layout is an order of the old state numbers: order[i] is the old number
+ * of new state i.  The initial state is always first, and states which can't
+ * be reached from it are kept at the end, in their old order.  Renumbering
+ * doesn't change the language of the automaton.
+ * @author mjoer
+ */
+public class StateLayout {
+
+	private StateLayout() {}
+
+	/**
+	 * Number the states in breadth-first order from the initial state, so the
+	 * successors of a state are close to it and to each other.
+	 * @param dfa The automaton to renumber
+	 * @return An equivalent automaton with the new numbering
+	 */
+	public static CompiledDFA breadthFirst(CompiledDFA dfa) {
+		return StateLayout.renumber(dfa, StateLayout.breadthFirstOrder(dfa));
+	}
+
+	/**
+	 * Number the states by how often a sample of inputs visits them, most
+	 * visited first, so the rows a typical match uses share as few cache
+	 * lines as possible.  States the sample visits equally often, including
+	 * the ones it never visits, keep their breadth-first order.
+	 * @param dfa The automaton to renumber
+	 * @param sample Inputs like the ones the automaton will be matched against
+	 * @return An equivalent automaton with the new numbering
+	 */
+	public static CompiledDFA byFrequency(CompiledDFA dfa, Iterable<? extends CharSequence> sample) {
+		long[] visits = new long[dfa.getNumStates()];
+		for(CharSequence input : sample) {
+			int state = dfa.getInitialState();
+			visits[state]++;
+			for(int i = 0; i < input.length() && state != CompiledDFA.REJECT; i++) {
+				state = dfa.step(state, input.charAt(i));
+				if(state != CompiledDFA.REJECT) {
+					visits[state]++;
+				}
+			}
+		}
+
+		int[] breadthFirst = StateLayout.breadthFirstOrder(dfa);
+		// Sort (visits, breadth-first position) pairs packed into longs, so
+		// no Integer[] is needed.  Visits are capped to fit in the high bits.
+		long[] keys = new long[breadthFirst.length];
+		for(int position = 0; position < breadthFirst.length; position++) {
+			long count = Math.min(visits[breadthFirst[position]], Integer.MAX_VALUE);
+			keys[position] = ((Integer.MAX_VALUE - count) << 32) | position;
+		}
+		Arrays.sort(keys);
+
+		int initialState = dfa.getInitialState();
+		int[] order = new int[keys.length];
+		int next = 0;
+		if(order.length > 0) {
+			order[next++] = initialState;
+		}
+		for(long key : keys) {
+			int state = breadthFirst[(int) key];
+			if(state != initialState) {
+				order[next++] = state;
+			}
+		}
+		return StateLayout.renumber(dfa, order);
+	}
+
+	/**
+	 * @return The states in breadth-first order from the initial state,
+	 * 		followed by the unreachable states in increasing order
+	 */
+	static int[] breadthFirstOrder(CompiledDFA dfa) {
+		int numStates = dfa.getNumStates();
+		int numClasses = dfa.getNumSymbolClasses();
+		int[] transitions = dfa.getTransitions();
+		int[] order = new int[numStates];
+		boolean[] seen = new boolean[numStates];
+		if(numStates == 0)
+			return order;
+
+		// order doubles as the queue
+		int tail = 0;
+		order[tail++] = dfa.getInitialState();
+		seen[dfa.getInitialState()] = true;
+		for(int head = 0; head < tail; head++) {
+			int row = order[head] * numClasses;
+			for(int symbolClass = 0; symbolClass < numClasses; symbolClass++) {
+				int target = transitions[row + symbolClass];
+				if(target != CompiledDFA.REJECT && !seen[target]) {
+					seen[target] = true;
+					order[tail++] = target;
+				}
+			}
+		}
+		for(int state = 0; state < numStates; state++) {
+			if(!seen[state]) {
+				order[tail++] = state;
+			}
+		}
+		return order;
+	}
+
+	/**
+	 * Rebuild the tables of an automaton with new state numbers.
+	 * @param order order[i] is the old number of new state i
+	 */
+	static CompiledDFA renumber(CompiledDFA dfa, int[] order) {
+		int numStates = dfa.getNumStates();
+		int numClasses = dfa.getNumSymbolClasses();
+		int[] transitions = dfa.getTransitions();
+
+		int[] newNumber = new int[numStates];
+		for(int i = 0; i < numStates; i++) {
+			newNumber[order[i]] = i;
+		}
+
+		int[] renumbered = new int[transitions.length];
+		long[] accepting = new long[(numStates + 63) >>> 6];
+		for(int i = 0; i < numStates; i++) {
+			int row = order[i] * numClasses;
+			for(int symbolClass = 0; symbolClass < numClasses; symbolClass++) {
+				int target = transitions[row + symbolClass];
+				renumbered[i * numClasses + symbolClass] = target == CompiledDFA.REJECT ? CompiledDFA.REJECT : newNumber[target];
+			}
+			if(dfa.isAccepting(order[i])) {
+				accepting[i >>> 6] |= 1L << i;
+			}
+		}
+		int initialState = numStates == 0 ? dfa.getInitialState() : newNumber[dfa.getInitialState()];
+		return new CompiledDFA(dfa.getSigma(), dfa.getSymbolClasses(), numStates, initialState, accepting, renumbered);
+	}
+
+}
@@ -0,0 +1,99 @@
+package nfa;
+import java.util.Arrays;
+
+/**
+ * A StateSet is the canonical form of a set of NFA state IDs.  The IDs are
+ * kept sorted and free of duplicates, so two StateSets holding the same
+ * states are always equal, and the hash is computed once up front.  This
+ * makes StateSets suitable as hash keys for the DFA states built during
+ * subset construction.
+ * @author mjoer
+ */
+public final class StateSet {
+
+	private final int[] ids;
+	private final int hash;
+
+	private StateSet(int[] sortedIds) {
+		this.ids = sortedIds;
+		this.hash = Arrays.hashCode(sortedIds);
+	}
+
+	/**
+	 * Create a StateSet from the IDs of the specified NFANodes.  The
+	 * nodes may be in any order and may contain duplicates.
+	 * @param nodes The NFANodes in the set
+	 * @return A new StateSet
+	 */
+	public static StateSet of(NFANode ... nodes) {
+		int[] ids = new int[nodes.length];
+		for(int i = 0; i < nodes.length; i++) {
+			ids[i] = nodes[i].getId();
+		}
+		return StateSet.of(ids);
+	}
+
+	/**
+	 * Create a StateSet from an array of state IDs.  The IDs may be in any
+	 * order and may contain duplicates.  The array is not modified.
+	 * @param ids The state IDs in the set
+	 * @return A new StateSet
+	 */
+	public static StateSet of(int ... ids) {
+		int[] sorted = Arrays.copyOf(ids, ids.length);
+		Arrays.sort(sorted);
+
+		int size = 0;
+		for(int i = 0; i < sorted.length; i++) {
+			if(size == 0 || sorted[size - 1] != sorted[i]) {
+				sorted[size++] = sorted[i];
+			}
+		}
+		return new StateSet(size == sorted.length ? sorted : Arrays.copyOf(sorted, size));
+	}
+
+	public int size() { return this.ids.length; }
+	public int get(int index) { return this.ids[index]; }
+
+	public boolean contains(int id) {
+		return Arrays.binarySearch(this.ids, id) >= 0;
+	}
+
+	/**
+	 * @return True if every ID in other is also in this set
+	 */
+	boolean containsAll(StateSet other) {
+		if(other.ids.length > this.ids.length)
+			return false;
+		int i = 0;
+		for(int id : other.ids) {
+			while(i < this.ids.length && this.ids[i] < id) {
+				i++;
+			}
+			if(i == this.ids.length || this.ids[i] != id)
+				return false;
+			i++;
+		}
+		return true;
+	}
+
+	public int[] toArray() { return Arrays.copyOf(this.ids, this.ids.length); }
+
+	@Override
+	public boolean equals(Object other) {
+		if(this == other)
+			return true;
+		if(other instanceof StateSet) {
+			StateSet otherSet = (StateSet) other;
+			return this.hash == otherSet.hash && Arrays.equals(this.ids, otherSet.ids);
+		}
+		return false;
+	}
+
+	@Override
+	public int hashCode() { return this.hash; }
+
+	@Override
+	public String toString() { return Arrays.toString(this.ids); }
+
+}
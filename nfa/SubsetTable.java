@@ -0,0 +1,100 @@
+package nfa;
+import java.util.Arrays;
+
+/**
+ * A SubsetTable interns the sets of NFA states found during subset
+ * construction and numbers them in the order they were added.  Every set is
+ * stored sorted in one shared int[], and sets are found through an
+ * open-addressing hash table of set numbers, so a set costs a few ints
+ * instead of a DFANode, its NFANode[] and a StateSet.
+ * @author mjoer
+ */
+class SubsetTable {
+
+	private int[] elements = new int[1024];
+	private int numElements;
+	// Set s is elements[start[s]] up to, but not including, elements[start[s + 1]]
+	private int[] start = new int[65];
+	private int[] hashes = new int[64];
+	private int size;
+	// Each slot holds (set number + 1), or 0 if empty
+	private int[] slots = new int[128];
+
+	/**
+	 * Find a set, adding it if it is new.
+	 * @param ids The sorted, distinct IDs of the set, in ids[0 .. length)
+	 * @param length The number of IDs
+	 * @return The number of the set
+	 */
+	int intern(int[] ids, int length) {
+		int hash = SubsetTable.hash(ids, length);
+		int mask = this.slots.length - 1;
+		int slot = hash & mask;
+		for(int entry = this.slots[slot]; entry != 0; entry = this.slots[slot]) {
+			if(this.hashes[entry - 1] == hash && this.equals(entry - 1, ids, length))
+				return entry - 1;
+			slot = (slot + 1) & mask;
+		}
+
+		int set = this.size++;
+		if(this.size == this.hashes.length) {
+			this.hashes = Arrays.copyOf(this.hashes, this.size * 2);
+			this.start = Arrays.copyOf(this.start, this.size * 2 + 1);
+		}
+		if(this.numElements + length > this.elements.length) {
+			this.elements = Arrays.copyOf(this.elements, Math.max(this.elements.length * 2, this.numElements + length));
+		}
+		System.arraycopy(ids, 0, this.elements, this.numElements, length);
+		this.numElements += length;
+		this.start[set + 1] = this.numElements;
+		this.hashes[set] = hash;
+		this.slots[slot] = set + 1;
+
+		// Keep the hash table at most half full
+		if(this.size * 2 > this.slots.length) {
+			this.rehash();
+		}
+		return set;
+	}
+
+	int size() { return this.size; }
+	int start(int set) { return this.start[set]; }
+	int end(int set) { return this.start[set + 1]; }
+	int element(int index) { return this.elements[index]; }
+
+	private boolean equals(int set, int[] ids, int length) {
+		int from = this.start[set];
+		if(this.start[set + 1] - from != length)
+			return false;
+		for(int i = 0; i < length; i++) {
+			if(this.elements[from + i] != ids[i])
+				return false;
+		}
+		return true;
+	}
+
+	private void rehash() {
+		int[] slots = new int[this.slots.length * 2];
+		int mask = slots.length - 1;
+		for(int set = 0; set < this.size; set++) {
+			int slot = this.hashes[set] & mask;
+			while(slots[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			slots[slot] = set + 1;
+		}
+		this.slots = slots;
+	}
+
+	private static int hash(int[] ids, int length) {
+		int hash = 1;
+		for(int i = 0; i < length; i++) {
+			hash = 31 * hash + ids[i];
+		}
+		// Spread the bits, since the low bits pick the slot
+		hash ^= hash >>> 16;
+		hash *= 0x45D9F3B;
+		return hash ^ (hash >>> 16);
+	}
+
+}
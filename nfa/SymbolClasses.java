@@ -0,0 +1,167 @@
+package nfa;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * SymbolClasses groups the symbols of sigma which every state handles the
+ * same way.  Symbols in one class have the same targets from every state, so
+ * an automaton only needs one column of its transition table per class, and
+ * subset construction and minimization only need to look at one symbol of
+ * each class.  Classes are numbered in order of their lowest symbol, and the
+ * representative of a class is its lowest symbol.
+ * @author mjoer
+ */
+class SymbolClasses {
+
+	private final int[] classOf;
+	private final int[] representatives;
+
+	private SymbolClasses(int[] classOf, int numClasses) {
+		this.classOf = classOf;
+		this.representatives = new int[numClasses];
+		for(int symbol = classOf.length - 1; symbol >= 0; symbol--) {
+			this.representatives[classOf[symbol]] = symbol;
+		}
+	}
+
+	/**
+	 * Find the classes of a transition table: symbols are in the same class
+	 * when their columns are equal.
+	 * @param transitions The transition table, indexed by (state * numSymbols + symbol)
+	 */
+	static SymbolClasses of(int[] transitions, int numStates, int numSymbols) {
+		long[] hashes = new long[numSymbols];
+		for(int state = 0; state < numStates; state++) {
+			int row = state * numSymbols;
+			for(int symbol = 0; symbol < numSymbols; symbol++) {
+				hashes[symbol] = hashes[symbol] * 0x9E3779B97F4A7C15L + transitions[row + symbol];
+			}
+		}
+		return SymbolClasses.classify(hashes, (a, b) -> {
+			for(int row = 0; row < numStates * numSymbols; row += numSymbols) {
+				if(transitions[row + a] != transitions[row + b])
+					return false;
+			}
+			return true;
+		});
+	}
+
+	/**
+	 * Find the classes of an NFA: symbols are in the same class when every
+	 * state has the same set of targets on them.  Lambda is left out.
+	 * @param nfa The NFA, whose last symbol is lambda
+	 */
+	static SymbolClasses of(NFA nfa) {
+		char[] sigma = nfa.getSigma();
+		int numSymbols = sigma.length - 1;
+		int numStates = nfa.getNumStates();
+		// The sorted IDs of the targets of every state on every symbol
+		int[][] moves = new int[numStates * numSymbols][];
+		long[] hashes = new long[numSymbols];
+		for(int q = 0; q < numStates; q++) {
+			NFANode node = nfa.getState(q);
+			for(int symbol = 0; symbol < numSymbols; symbol++) {
+				NFANode[] targets = node.applyTransition(sigma[symbol]);
+				int[] ids = new int[targets.length];
+				for(int t = 0; t < targets.length; t++) {
+					ids[t] = targets[t].getId();
+				}
+				Arrays.sort(ids);
+				moves[q * numSymbols + symbol] = ids;
+				hashes[symbol] = hashes[symbol] * 0x9E3779B97F4A7C15L + Arrays.hashCode(ids);
+			}
+		}
+		return SymbolClasses.classify(hashes, (a, b) -> {
+			for(int row = 0; row < numStates * numSymbols; row += numSymbols) {
+				if(!Arrays.equals(moves[row + a], moves[row + b]))
+					return false;
+			}
+			return true;
+		});
+	}
+
+	/**
+	 * Put every symbol in the class of the first earlier symbol with an equal
+	 * column, or in a new class.  Columns are only compared when their hashes
+	 * match.
+	 */
+	private static SymbolClasses classify(long[] hashes, ColumnEquality equality) {
+		int[] classOf = new int[hashes.length];
+		int numClasses = 0;
+		// The representatives of the classes with each hash
+		HashMap<Long, int[]> candidates = new HashMap<>();
+		for(int symbol = 0; symbol < hashes.length; symbol++) {
+			int[] sameHash = candidates.get(hashes[symbol]);
+			int found = -1;
+			if(sameHash != null) {
+				for(int representative : sameHash) {
+					if(equality.equal(representative, symbol)) {
+						found = classOf[representative];
+						break;
+					}
+				}
+			}
+			if(found >= 0) {
+				classOf[symbol] = found;
+				continue;
+			}
+			classOf[symbol] = numClasses++;
+			if(sameHash == null) {
+				candidates.put(hashes[symbol], new int[] { symbol });
+			} else {
+				int[] more = Arrays.copyOf(sameHash, sameHash.length + 1);
+				more[sameHash.length] = symbol;
+				candidates.put(hashes[symbol], more);
+			}
+		}
+		return new SymbolClasses(classOf, numClasses);
+	}
+
+	private interface ColumnEquality {
+		boolean equal(int a, int b);
+	}
+
+	/**
+	 * Keep one column per class of a transition table.
+	 * @param transitions The transition table, indexed by (state * numSymbols + symbol)
+	 * @return The table indexed by (state * numClasses + class)
+	 */
+	int[] compress(int[] transitions, int numStates) {
+		int numSymbols = this.classOf.length;
+		int numClasses = this.representatives.length;
+		if(numClasses == numSymbols)
+			return transitions;
+		int[] compressed = new int[numStates * numClasses];
+		for(int state = 0; state < numStates; state++) {
+			for(int c = 0; c < numClasses; c++) {
+				compressed[state * numClasses + c] = transitions[state * numSymbols + this.representatives[c]];
+			}
+		}
+		return compressed;
+	}
+
+	/**
+	 * Undo compress.
+	 * @param compressed The table indexed by (state * numClasses + class)
+	 * @return The table indexed by (state * numSymbols + symbol)
+	 */
+	int[] expand(int[] compressed, int numStates) {
+		int numSymbols = this.classOf.length;
+		int numClasses = this.representatives.length;
+		if(numClasses == numSymbols)
+			return compressed;
+		int[] transitions = new int[numStates * numSymbols];
+		for(int state = 0; state < numStates; state++) {
+			for(int symbol = 0; symbol < numSymbols; symbol++) {
+				transitions[state * numSymbols + symbol] = compressed[state * numClasses + this.classOf[symbol]];
+			}
+		}
+		return transitions;
+	}
+
+	int getNumSymbols() { return this.classOf.length; }
+	int getNumClasses() { return this.representatives.length; }
+	int classOf(int symbol) { return this.classOf[symbol]; }
+	int representative(int symbolClass) { return this.representatives[symbolClass]; }
+
+}